@@ -0,0 +1,107 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import com.seapip.thomas.huffman.huffman.BitBuffer;
+import com.seapip.thomas.huffman.huffman.BitQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code BitQueueBenchmark} class measures adding, polling and exporting the bits of a {@link BitQueue},
+ * next to appending, reading and exporting the same bits with a {@link BitBuffer} a bit or a word at a time.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitQueueBenchmark {
+    @Param({"4096", "1048576"})
+    public int bits;
+
+    private boolean[] values;
+    private long[] words;
+    private BitQueue queue;
+    private BitBuffer buffer;
+    private byte[] output;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(bits);
+        values = new boolean[bits];
+        for (int i = 0; i < bits; i++) values[i] = random.nextBoolean();
+        words = new long[(bits + 63) / 64];
+        for (int i = 0; i < bits; i++) if (values[i]) words[i >>> 6] |= 1L << i;
+        queue = fill();
+        buffer = append();
+        output = new byte[bits / 8 + 1];
+    }
+
+    private BitQueue fill() {
+        BitQueue bitQueue = new BitQueue();
+        for (boolean value : values) bitQueue.add(value);
+        return bitQueue;
+    }
+
+    @Benchmark
+    public BitQueue add() {
+        return fill();
+    }
+
+    @Benchmark
+    public int poll() {
+        BitQueue bitQueue = fill();
+        int ones = 0;
+        while (!bitQueue.isEmpty()) if (bitQueue.poll()) ones++;
+        return ones;
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return queue.toByteArray();
+    }
+
+    @Benchmark
+    public BitBuffer append() {
+        BitBuffer bitBuffer = new BitBuffer();
+        for (boolean value : values) bitBuffer.appendBits(value ? 1 : 0, 1);
+        return bitBuffer;
+    }
+
+    @Benchmark
+    public BitBuffer appendWords() {
+        BitBuffer bitBuffer = new BitBuffer();
+        for (long word : words) bitBuffer.appendBits(word, 64);
+        return bitBuffer;
+    }
+
+    @Benchmark
+    public int read() {
+        BitBuffer bitBuffer = append();
+        int ones = 0;
+        while (!bitBuffer.isEmpty()) ones += (int) bitBuffer.readBits(1);
+        return ones;
+    }
+
+    @Benchmark
+    public byte[] export() {
+        buffer.toByteArray(output, 0);
+        return output;
+    }
+}
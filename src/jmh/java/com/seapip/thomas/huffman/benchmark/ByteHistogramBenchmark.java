@@ -0,0 +1,65 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import com.seapip.thomas.huffman.huffman.ByteHistogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ByteHistogramBenchmark} class measures counting byte frequencies with a single table,
+ * with the interleaved tables of {@link ByteHistogram} and with a fork join pool.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteHistogramBenchmark {
+    @Param({"RANDOM", "TEXT", "SINGLE"})
+    public Corpus corpus;
+
+    @Param({"1048576", "67108864"})
+    public int size;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        //Repeat the corpus up to the size
+        byte[] sample = corpus.generate();
+        data = new byte[size];
+        for (int i = 0; i < size; i += sample.length) System.arraycopy(sample, 0, data, i, Math.min(sample.length, size - i));
+    }
+
+    @Benchmark
+    public long[] single() {
+        long[] frequencies = new long[256];
+        for (byte b : data) frequencies[b & 0xFF]++;
+        return frequencies;
+    }
+
+    @Benchmark
+    public long[] interleaved() {
+        return ByteHistogram.count(data);
+    }
+
+    @Benchmark
+    public long[] parallel() {
+        return ByteHistogram.countParallel(data, 0, data.length);
+    }
+}
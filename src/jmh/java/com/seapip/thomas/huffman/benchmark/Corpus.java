@@ -0,0 +1,107 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import java.util.Random;
+
+/**
+ * The {@code Corpus} enum generates the data the benchmarks run on. Data is generated from a fixed seed,
+ * so every run and every fork compresses exactly the same bytes.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public enum Corpus {
+    /**
+     * Uniformly random bytes, every code is 8 bits long
+     */
+    RANDOM(1 << 20) {
+        @Override
+        void fill(byte[] data, int offset, int length, Random random) {
+            for (int i = offset; i < offset + length; i++) data[i] = (byte) random.nextInt(256);
+        }
+    },
+    /**
+     * Words picked with a Zipf like distribution, separated by spaces and punctuation
+     */
+    TEXT(1 << 20) {
+        @Override
+        void fill(byte[] data, int offset, int length, Random random) {
+            int i = offset;
+            while (i < offset + length) {
+                //Lower ranked words are picked more often
+                String word = WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 3))];
+                for (int j = 0; j < word.length() && i < offset + length; j++) data[i++] = (byte) word.charAt(j);
+                if (i < offset + length) data[i++] = (byte) (random.nextInt(12) == 0 ? '.' : ' ');
+            }
+        }
+    },
+    /**
+     * Bytes with a geometric distribution, a few bytes make up most of the data and the tree is deep
+     */
+    SKEWED(1 << 20) {
+        @Override
+        void fill(byte[] data, int offset, int length, Random random) {
+            for (int i = offset; i < offset + length; i++) {
+                int b = 0;
+                while (b < 255 && random.nextBoolean()) b++;
+                data[i] = (byte) b;
+            }
+        }
+    },
+    /**
+     * A single repeated byte
+     */
+    SINGLE(1 << 20) {
+        @Override
+        void fill(byte[] data, int offset, int length, Random random) {
+            for (int i = offset; i < offset + length; i++) data[i] = 'a';
+        }
+    },
+    /**
+     * A short text where the header outweighs the payload
+     */
+    SMALL(100) {
+        @Override
+        void fill(byte[] data, int offset, int length, Random random) {
+            TEXT.fill(data, offset, length, random);
+        }
+    };
+
+    private static final String[] WORDS = {
+            "the", "of", "and", "to", "a", "in", "is", "it", "you", "that", "he", "was", "for", "on", "are", "with",
+            "as", "I", "his", "they", "be", "at", "one", "have", "this", "from", "or", "had", "by", "word", "but",
+            "what", "some", "we", "can", "out", "other", "were", "all", "there", "when", "up", "use", "your", "how",
+            "said", "an", "each", "she", "which", "do", "their", "time", "if", "will", "way", "about", "many",
+            "then", "them", "write", "would", "like", "so", "these", "her", "long", "make", "thing", "see", "him",
+            "two", "has", "look", "more", "day", "could", "go", "come", "did", "number", "sound", "no", "most",
+            "people", "my", "over", "know", "water", "than", "call", "first", "who", "may", "down", "side", "been",
+            "now", "find", "Huffman", "compression", "Eerie", "eyes", "seen", "near", "lake"
+    };
+
+    private final int size;
+
+    Corpus(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Fills part of an array with data of this corpus
+     *
+     * @param data   The array to fill
+     * @param offset Offset in the array
+     * @param length Amount of bytes to fill
+     * @param random Random source to generate the data with
+     */
+    abstract void fill(byte[] data, int offset, int length, Random random);
+
+    /**
+     * Generates the data of this corpus
+     *
+     * @return The generated data
+     */
+    public byte[] generate() {
+        byte[] data = new byte[size];
+        fill(data, 0, size, new Random(size));
+        return data;
+    }
+}
@@ -0,0 +1,90 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import com.seapip.thomas.huffman.CompressionOptions;
+import com.seapip.thomas.huffman.Huffman;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code HuffmanBenchmark} class measures compression and decompression of every in memory corpus,
+ * in both the single stream format and the block container format. The size of the compressed data is
+ * reported as well, for the small corpus it shows the overhead of the headers.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HuffmanBenchmark {
+    @Param({"RANDOM", "TEXT", "SKEWED", "SINGLE", "SMALL"})
+    public Corpus corpus;
+
+    private final CompressionOptions options = new CompressionOptions();
+    private byte[] data;
+    private byte[] compressed;
+    private byte[] compressedBlocks;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setup() throws Exception {
+        data = corpus.generate();
+        output = new ByteArrayOutputStream(data.length * 2 + 1024);
+
+        Huffman.compress(new ByteArrayInputStream(data), output);
+        compressed = output.toByteArray();
+        output.reset();
+        Huffman.compress(new ByteArrayInputStream(data), output, options);
+        compressedBlocks = output.toByteArray();
+        output.reset();
+    }
+
+    @Benchmark
+    public int compress(Throughput throughput) throws Exception {
+        output.reset();
+        Huffman.compress(new ByteArrayInputStream(data), output);
+        throughput.add(data.length);
+        return output.size();
+    }
+
+    @Benchmark
+    public int compressBlocks(Throughput throughput) throws Exception {
+        output.reset();
+        Huffman.compress(new ByteArrayInputStream(data), output, options);
+        throughput.add(data.length);
+        return output.size();
+    }
+
+    @Benchmark
+    public int decompress(Throughput throughput) throws Exception {
+        output.reset();
+        Huffman.decompress(new ByteArrayInputStream(compressed), output);
+        throughput.add(data.length);
+        return output.size();
+    }
+
+    @Benchmark
+    public int decompressBlocks(Throughput throughput) throws Exception {
+        output.reset();
+        Huffman.decompress(new ByteArrayInputStream(compressedBlocks), output, options);
+        throughput.add(data.length);
+        return output.size();
+    }
+}
@@ -0,0 +1,113 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import com.seapip.thomas.huffman.CompressionOptions;
+import com.seapip.thomas.huffman.Huffman;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code LargeFileBenchmark} class measures compression and decompression of a large input, 1 GB by default,
+ * generated by a {@link SyntheticInputStream}. The single stream format holds all data in memory and can't
+ * hold this much, so only the block container format is measured. Every invocation takes seconds, an iteration
+ * runs at least one whole invocation.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LargeFileBenchmark {
+    @Param({"TEXT"})
+    public Corpus corpus;
+
+    @Param({"1073741824"})
+    public long size;
+
+    private final CompressionOptions options = new CompressionOptions();
+    private Path input;
+    private Path compressed;
+    private Path output;
+
+    @Setup
+    public void setup() throws Exception {
+        input = Files.createTempFile("huffman", ".raw");
+        compressed = Files.createTempFile("huffman", ".compressed");
+        output = Files.createTempFile("huffman", ".decompressed");
+        try (InputStream inputStream = new SyntheticInputStream(corpus, size)) {
+            Files.copy(inputStream, input, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Huffman.compress(input, compressed, options);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(compressed);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public void compressStream(Throughput throughput) throws Exception {
+        //Includes generating the data, compare with the throughput of the generator on it's own
+        Huffman.compress(new SyntheticInputStream(corpus, size), new NullOutputStream(), options);
+        throughput.add(size);
+    }
+
+    @Benchmark
+    public void generate(Throughput throughput) throws Exception {
+        byte[] buffer = new byte[65536];
+        try (InputStream inputStream = new SyntheticInputStream(corpus, size)) {
+            while (inputStream.read(buffer) != -1) {
+                //Discard data
+            }
+        }
+        throughput.add(size);
+    }
+
+    @Benchmark
+    public void compressFile(Throughput throughput) throws Exception {
+        Huffman.compress(input, output, options);
+        throughput.add(size);
+    }
+
+    @Benchmark
+    public void decompressFile(Throughput throughput) throws Exception {
+        Huffman.decompress(compressed, output, options);
+        throughput.add(size);
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            //Discard output
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            //Discard output
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * The {@code SyntheticInputStream} class generates a corpus of any length on the fly, so inputs much larger
+ * than the heap can be compressed without reading them from disk first.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class SyntheticInputStream extends InputStream {
+    private final Corpus corpus;
+    private final Random random;
+    private final byte[] buffer = new byte[65536];
+    private long remaining;
+    private int position = buffer.length;
+
+    public SyntheticInputStream(Corpus corpus, long length) {
+        this.corpus = corpus;
+        this.random = new Random(length);
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) return 0;
+        if (remaining == 0) return -1;
+        if (position == buffer.length) {
+            corpus.fill(buffer, 0, buffer.length, random);
+            position = 0;
+        }
+        int length = (int) Math.min(Math.min(len, buffer.length - position), remaining);
+        System.arraycopy(buffer, position, b, off, length);
+        position += length;
+        remaining -= length;
+        return length;
+    }
+}
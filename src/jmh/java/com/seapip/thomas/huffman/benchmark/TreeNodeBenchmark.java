@@ -0,0 +1,77 @@
+package com.seapip.thomas.huffman.benchmark;
+
+import com.seapip.thomas.huffman.huffman.TreeNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code TreeNodeBenchmark} class measures building a Huffman tree from data and from byte frequencies,
+ * and writing and reading the serialized tree.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeNodeBenchmark {
+    @Param({"RANDOM", "TEXT", "SKEWED", "SINGLE", "SMALL"})
+    public Corpus corpus;
+
+    private byte[] data;
+    private long[] frequencies;
+    private TreeNode tree;
+    private byte[] serialized;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setup() throws Exception {
+        data = corpus.generate();
+        frequencies = new long[256];
+        for (byte b : data) frequencies[b & 0xFF]++;
+        tree = new TreeNode(frequencies);
+        output = new ByteArrayOutputStream(1024);
+        tree.write(output);
+        serialized = output.toByteArray();
+    }
+
+    @Benchmark
+    public TreeNode build(Throughput throughput) {
+        throughput.add(data.length);
+        return new TreeNode(data);
+    }
+
+    @Benchmark
+    public TreeNode buildFromFrequencies() {
+        return new TreeNode(frequencies);
+    }
+
+    @Benchmark
+    public int write() throws Exception {
+        output.reset();
+        tree.write(output);
+        return output.size();
+    }
+
+    @Benchmark
+    public TreeNode read() throws Exception {
+        return TreeNode.read(new ByteArrayInputStream(serialized));
+    }
+}
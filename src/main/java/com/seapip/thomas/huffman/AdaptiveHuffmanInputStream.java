@@ -0,0 +1,131 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BitReader;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The {@code AdaptiveHuffmanInputStream} class decompresses a stream written by {@link AdaptiveHuffmanOutputStream}
+ * in a single pass. Every frame is decoded as soon as it has been read, so data flushed by the writer can be read
+ * right away, and no more than a single frame is held in memory.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class AdaptiveHuffmanInputStream extends FilterInputStream {
+    private final DataInputStream dataInputStream;
+    private final AdaptiveModel model;
+    private final byte[] buffer;
+    private byte[] payload = new byte[0];
+    private int position = 0;
+    private int limit = 0;
+    private boolean finished = false;
+
+    public AdaptiveHuffmanInputStream(InputStream inputStream) throws IOException {
+        super(inputStream);
+        this.dataInputStream = new DataInputStream(inputStream);
+
+        //Read header
+        if (dataInputStream.readInt() != AdaptiveHuffmanOutputStream.MAGIC) throw new IOException("Unknown format");
+        int version = dataInputStream.readUnsignedByte();
+        if (version != AdaptiveHuffmanOutputStream.VERSION) throw new IOException("Unsupported version " + version);
+        int segmentSize = dataInputStream.readInt();
+        int frameSize = dataInputStream.readInt();
+        if (segmentSize < 1 || frameSize < 1 || frameSize > CompressionOptions.MAX_BLOCK_SIZE) throw new IOException("Corrupt header");
+        this.model = new AdaptiveModel(segmentSize, true);
+        this.buffer = new byte[frameSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !readFrame()) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (position == limit && !readFrame()) return -1;
+        int length = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (position < limit || readFrame())) {
+            int length = (int) Math.min(n - skipped, limit - position);
+            position += length;
+            skipped += length;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        //Marks aren't supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark and reset aren't supported");
+    }
+
+    private boolean readFrame() throws IOException {
+        if (finished) return false;
+        int count = readVarint();
+        if (count == 0) {
+            finished = true;
+            return false;
+        }
+        int length = readVarint();
+
+        //Every byte takes at most the maximum code length
+        if (count > buffer.length || length > ((long) count * AdaptiveModel.MAX_CODE_LENGTH + 7) / 8) throw new IOException("Corrupt frame");
+        if (payload.length < length) payload = new byte[length];
+        dataInputStream.readFully(payload, 0, length);
+
+        //Decode frame, switching codes at the end of every segment
+        BitReader bitReader = new BitReader(payload, 0, (long) length << 3);
+        for (int offset = 0; offset < count; ) {
+            int chunk = Math.min(count - offset, model.remaining());
+            if (model.getDecodeTable().decode(bitReader, buffer, offset, chunk) != chunk) throw new IOException("Corrupt frame");
+            model.update(buffer, offset, chunk);
+            offset += chunk;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b == -1) throw new EOFException("Unexpected end of stream");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) break;
+                return value;
+            }
+        }
+        throw new IOException("Corrupt frame");
+    }
+}
@@ -0,0 +1,150 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BitWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@code AdaptiveHuffmanOutputStream} class compresses a stream in a single pass with an adaptive Huffman
+ * code, so data of unknown length like sockets and pipes can be compressed without buffering it. The code is
+ * rebuilt every segment from the data written so far, see {@link AdaptiveHuffmanInputStream} for reading it.
+ * Written bytes are buffered up to the frame size, {@link #flush()} writes buffered bytes right away.
+ * <pre>
+ * header: magic "HUFA" (4 bytes), version (1 byte), segment size (int), frame size (int)
+ * frame:  byte count (unsigned LEB128 varint), payload length (unsigned LEB128 varint), payload
+ * end:    byte count 0
+ * </pre>
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class AdaptiveHuffmanOutputStream extends FilterOutputStream {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 15;
+    public static final int DEFAULT_FRAME_SIZE = 1 << 16;
+
+    static final int MAGIC = 0x48554641;
+    static final int VERSION = 1;
+
+    private final AdaptiveModel model;
+    private final byte[] buffer;
+    private final ByteArrayOutputStream payload;
+    private final BitWriter bitWriter;
+    private int position = 0;
+    private boolean finished = false;
+
+    public AdaptiveHuffmanOutputStream(OutputStream outputStream) throws IOException {
+        this(outputStream, DEFAULT_SEGMENT_SIZE, DEFAULT_FRAME_SIZE);
+    }
+
+    /**
+     * Creates a stream rebuilding the Huffman code every segment
+     *
+     * @param outputStream The stream to write the compressed data to
+     * @param segmentSize  Amount of bytes after which the code is rebuilt, smaller segments adapt faster
+     * @param frameSize    Maximum amount of bytes buffered before they're written
+     * @throws IOException Exception thrown when the header can't be written
+     */
+    public AdaptiveHuffmanOutputStream(OutputStream outputStream, int segmentSize, int frameSize) throws IOException {
+        super(outputStream);
+        if (segmentSize < 1) throw new IllegalArgumentException("Segment size must be at least 1");
+        if (frameSize < 1 || frameSize > CompressionOptions.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Frame size must be between 1 and " + CompressionOptions.MAX_BLOCK_SIZE);
+        }
+        this.model = new AdaptiveModel(segmentSize, false);
+        this.buffer = new byte[frameSize];
+        this.payload = new ByteArrayOutputStream(frameSize);
+        this.bitWriter = new BitWriter(payload);
+
+        //Write header
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeInt(segmentSize);
+        dataOutputStream.writeInt(frameSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (finished) throw new IOException("Stream is finished");
+        if (position == buffer.length) writeFrame();
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) throw new IOException("Stream is finished");
+        while (len > 0) {
+            if (position == buffer.length) writeFrame();
+            int length = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, length);
+            position += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    private void writeFrame() throws IOException {
+        if (position == 0) return;
+
+        //Encode buffered bytes, switching codes at the end of every segment
+        payload.reset();
+        for (int offset = 0; offset < position; ) {
+            int length = Math.min(position - offset, model.remaining());
+            model.getCodeTable().encode(buffer, offset, length, bitWriter);
+            model.update(buffer, offset, length);
+            offset += length;
+        }
+        bitWriter.flush();
+
+        writeVarint(position);
+        writeVarint(payload.size());
+        payload.writeTo(out);
+        position = 0;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes all buffered bytes as a frame and flushes the underlying stream
+     *
+     * @throws IOException Exception thrown when the stream can't be written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished) writeFrame();
+        out.flush();
+    }
+
+    /**
+     * Writes all buffered bytes and the end of the stream without closing the underlying stream
+     *
+     * @throws IOException Exception thrown when the stream can't be written
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        writeFrame();
+        writeVarint(0);
+        finished = true;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.CodeTable;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+
+import java.util.Arrays;
+
+/**
+ * The {@code AdaptiveModel} class holds the Huffman code of an adaptive stream. Every byte starts with an
+ * 8 bit code, after every segment the code is rebuilt from the frequencies of all bytes so far, where older
+ * segments weigh half as much as every next segment. The encoder and decoder update their model with the
+ * same bytes, so they always use the same code without it ever being written to the stream.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class AdaptiveModel {
+    static final int MAX_CODE_LENGTH = 15;
+
+    private final int segmentSize;
+    private final boolean decoder;
+    private final long[] frequencies = new long[256];
+    private int remaining;
+    private CodeTable codeTable;
+    private DecodeTable decodeTable;
+
+    AdaptiveModel(int segmentSize, boolean decoder) {
+        this.segmentSize = segmentSize;
+        this.decoder = decoder;
+        int[] lengths = new int[256];
+        Arrays.fill(lengths, 8);
+        build(new CanonicalCode(lengths));
+    }
+
+    private void build(CanonicalCode code) {
+        remaining = segmentSize;
+        if (decoder) {
+            decodeTable = new DecodeTable(code);
+        } else {
+            codeTable = new CodeTable(code);
+        }
+    }
+
+    /**
+     * Returns the amount of bytes that can be coded before the code changes
+     *
+     * @return Amount of bytes
+     */
+    int remaining() {
+        return remaining;
+    }
+
+    CodeTable getCodeTable() {
+        return codeTable;
+    }
+
+    DecodeTable getDecodeTable() {
+        return decodeTable;
+    }
+
+    /**
+     * Counts coded bytes and rebuilds the code at the end of a segment
+     *
+     * @param data   Array holding the coded bytes
+     * @param offset Offset in the array
+     * @param length Amount of bytes, at most {@link #remaining()}
+     */
+    void update(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) frequencies[data[i] & 0xFF]++;
+        remaining -= length;
+        if (remaining > 0) return;
+
+        //Every byte keeps a code, so any byte can follow
+        long[] weights = new long[256];
+        for (int i = 0; i < 256; i++) {
+            weights[i] = frequencies[i] + 1;
+            frequencies[i] >>>= 1;
+        }
+        build(new CanonicalCode(PackageMerge.limit(weights, MAX_CODE_LENGTH)));
+    }
+}
@@ -0,0 +1,257 @@
+package com.seapip.thomas.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The {@code BatchCompressor} class compresses or decompresses many files in a single run. Files go through a
+ * pipeline of a read stage, a configurable amount of compression workers and a write stage, connected by bounded
+ * queues, so reading never runs further ahead than the workers can keep up with. Files larger than
+ * {@link #IN_MEMORY_LIMIT} skip the read and write stages and are compressed straight between files by a worker.
+ * Stages run on virtual threads when the runtime has them, and on platform threads otherwise.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class BatchCompressor {
+    static final String SUFFIX = ".compressed";
+    static final int IN_MEMORY_LIMIT = 1 << 24;
+
+    private static final Task END = new Task(null, null);
+
+    private final boolean compress;
+    private final int threads;
+    private final Path outputDirectory;
+    private final CompressionOptions options;
+    private final List<String> failures = new ArrayList<>();
+    private long files = 0;
+    private long bytesIn = 0;
+    private long bytesOut = 0;
+
+    /**
+     * Creates a batch
+     *
+     * @param compress        Whether to compress, otherwise files are decompressed
+     * @param threads         Amount of files compressed at the same time
+     * @param outputDirectory Directory to write output files into keeping their path relative to their input,
+     *                        or {@code null} to write them next to their input
+     * @param options         The options to compress or decompress every file with
+     */
+    BatchCompressor(boolean compress, int threads, Path outputDirectory, CompressionOptions options) {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1");
+        this.compress = compress;
+        this.threads = threads;
+        this.outputDirectory = outputDirectory;
+        this.options = options;
+    }
+
+    /**
+     * Runs the batch and prints every failure and a summary
+     *
+     * @param inputs Files, directories, glob patterns or {@code @file} lists holding a path per line
+     * @param out    Stream to print the summary to
+     * @param err    Stream to print failures to
+     * @return Whether every file succeeded
+     * @throws IOException          Exception thrown when the inputs can't be listed
+     * @throws InterruptedException Exception thrown when interrupted while waiting for the pipeline
+     */
+    boolean run(List<String> inputs, PrintStream out, PrintStream err) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<Task> tasks = new ArrayList<>();
+        for (String input : inputs) list(input, tasks);
+
+        //Read stage feeds workers, workers feed write stage, both queues block when full
+        BlockingQueue<Task> read = new ArrayBlockingQueue<>(threads);
+        BlockingQueue<Task> written = new ArrayBlockingQueue<>(threads);
+        ExecutorService executor = executor(threads + 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> {
+                for (Task task : tasks) read.put(readStage(task));
+                for (int i = 0; i < threads; i++) read.put(END);
+                return null;
+            }));
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (Task task = read.take(); task != END; task = read.take()) written.put(compressStage(task));
+                    written.put(END);
+                    return null;
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int ended = 0; ended < threads; ) {
+                    Task task = written.take();
+                    if (task == END) {
+                        ended++;
+                    } else {
+                        writeStage(task);
+                    }
+                }
+                return null;
+            }));
+            for (Future<?> future : futures) future.get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        //Print failures and summary
+        for (String failure : failures) err.println(failure);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.println(String.format(Locale.ROOT, "%d files, %d failed, %d bytes in, %d bytes out (%.1f%%), %.2f s, %.1f MB/s",
+                files, failures.size(), bytesIn, bytesOut, bytesIn == 0 ? 0 : 100.0 * bytesOut / bytesIn,
+                seconds, bytesIn / 1e6 / Math.max(seconds, 1e-9)));
+        return failures.isEmpty();
+    }
+
+    private void list(String input, List<Task> tasks) throws IOException {
+        //File lists
+        if (input.startsWith("@")) {
+            for (String line : Files.readAllLines(Paths.get(input.substring(1)))) {
+                if (!line.trim().isEmpty()) list(line.trim(), tasks);
+            }
+            return;
+        }
+
+        //Glob patterns are matched below the directory before the first wildcard
+        if (input.matches(".*[*?\\[{].*")) {
+            String prefix = input.split("[*?\\[{]", 2)[0];
+            int separator = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf(File.separatorChar));
+            Path base = Paths.get(separator < 0 ? "." : prefix.substring(0, separator + 1));
+            Path pattern = separator < 0 ? base.resolve(input) : Paths.get(input);
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            walk(base, p -> matcher.matches(p) && (!compress || !p.toString().endsWith(SUFFIX)), tasks);
+            return;
+        }
+        Path path = Paths.get(input);
+        if (Files.isDirectory(path)) {
+            walk(path, p -> !compress || !p.toString().endsWith(SUFFIX), tasks);
+        } else {
+            tasks.add(new Task(path, output(path.getFileName(), path)));
+        }
+    }
+
+    private void walk(Path base, Predicate<Path> filter, List<Task> tasks) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(base)) {
+            paths = stream.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) tasks.add(new Task(path, output(base.relativize(path), path)));
+    }
+
+    private Path output(Path relative, Path path) {
+        String name = (outputDirectory == null ? path : outputDirectory.resolve(relative)).toString();
+        if (compress) return Paths.get(name + SUFFIX);
+        return Paths.get((name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name) + ".decompressed");
+    }
+
+    private Task readStage(Task task) {
+        try {
+            task.length = Files.size(task.input);
+            if (task.length <= IN_MEMORY_LIMIT) task.data = Files.readAllBytes(task.input);
+        } catch (IOException e) {
+            task.error = e.toString();
+        }
+        return task;
+    }
+
+    private Task compressStage(Task task) {
+        if (task.error != null) return task;
+        try {
+            if (task.data == null) {
+                //Large files are compressed straight between files
+                Files.createDirectories(task.output.toAbsolutePath().getParent());
+                if (compress) {
+                    Huffman.compress(task.input, task.output, options);
+                } else {
+                    Huffman.decompress(task.input, task.output, options);
+                }
+                task.outputLength = Files.size(task.output);
+                task.done = true;
+                return task;
+            }
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(Math.max(32, task.data.length / 2));
+            if (compress) {
+                Huffman.compress(new ByteArrayInputStream(task.data), byteArrayOutputStream, options);
+            } else {
+                Huffman.decompress(new ByteArrayInputStream(task.data), byteArrayOutputStream, options);
+            }
+            task.data = byteArrayOutputStream.toByteArray();
+        } catch (IOException | Huffman.CompressionException e) {
+            task.error = e.toString();
+            task.data = null;
+        }
+        return task;
+    }
+
+    private void writeStage(Task task) {
+        try {
+            if (task.error == null && !task.done) {
+                Files.createDirectories(task.output.toAbsolutePath().getParent());
+                Files.write(task.output, task.data);
+                task.outputLength = task.data.length;
+            }
+        } catch (IOException e) {
+            task.error = e.toString();
+        }
+        task.data = null;
+        files++;
+        if (task.error != null) {
+            failures.add(task.input + ": " + task.error);
+            return;
+        }
+        bytesIn += task.length;
+        bytesOut += task.outputLength;
+    }
+
+    /**
+     * Returns an executor running every task on a new virtual thread when the runtime has them
+     */
+    private static ExecutorService executor(int threads) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private static class Task {
+        private final Path input;
+        private final Path output;
+        private byte[] data;
+        private long length;
+        private long outputLength;
+        private boolean done = false;
+        private String error;
+
+        Task(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.CompressionStats.Phase;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.ByteHistogram;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.CodeTable;
+import com.seapip.thomas.huffman.huffman.Crc32c;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+import com.seapip.thomas.huffman.huffman.TreeNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+/**
+ * The {@code BlockFormat} class describes the block container format and encodes and decodes
+ * the body of a single block. Every block has it's own Huffman code, so blocks can be decoded
+ * independently of each other.
+ * <pre>
+ * header:  magic "HUFB" (4 bytes), version (1 byte), flags (1 byte), block size (int), max code length (1 byte)
+ * block:   type (1 byte), uncompressed length (int), body length (long), body, followed by the CRC-32C of the
+ *          uncompressed data (int) as part of the body when the type has {@link #TYPE_CHECKSUM}
+ * body:    Huffman tree or canonical code lengths, payload size in bits (long), payload
+ * interleaved body: Huffman tree or canonical code lengths, payload sizes in bits of 4 streams (4 longs),
+ *          4 payloads each padded to a whole byte, the streams hold a quarter of the block each and the
+ *          last stream the bytes left, see {@link #TYPE_INTERLEAVED}
+ * context body: context model, see {@link ContextModel}, payload size in bits (long), payload
+ * stored body: the uncompressed bytes
+ * run body:    the single byte every byte of the block equals
+ * end:     type {@link #TYPE_END} (1 byte)
+ * index:   block count (int), per block the uncompressed offset (long) and stream offset (long),
+ *          stream checksum (int) when the header has {@link #FLAG_CHECKSUM}, the CRC-32C of the checksums of
+ *          all blocks in order followed by the index entries
+ * trailer: index stream offset (long), magic "HUFI" (4 bytes)
+ * </pre>
+ * The first byte of the magic is never zero, which tells this format apart from the single stream
+ * format that starts with a 4 byte symbol count.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class BlockFormat {
+    static final int MAGIC = 0x48554642;
+    static final int INDEX_MAGIC = 0x48554649;
+    static final int VERSION = 1;
+    /**
+     * Header flag set when every block has {@link #TYPE_CHECKSUM} and the index ends with a stream checksum
+     */
+    static final int FLAG_CHECKSUM = 1;
+
+    static final int TYPE_END = 0;
+    static final int TYPE_TREE = 1;
+    static final int TYPE_CANONICAL = 2;
+    static final int TYPE_CONTEXT = 3;
+    static final int TYPE_STORED = 4;
+    static final int TYPE_RUN = 5;
+    /**
+     * Flag set on the type of a block split into interleaved streams
+     */
+    static final int TYPE_INTERLEAVED = 0x80;
+    /**
+     * Flag set on the type of a block that ends with the checksum of it's uncompressed data
+     */
+    static final int TYPE_CHECKSUM = 0x40;
+    static final int STREAMS = 4;
+    /**
+     * Blocks with an entropy of at least this many bits per byte are stored, a Huffman code can't save enough of
+     * them to make up for it's header and slower decoding
+     */
+    static final double STORED_ENTROPY = 7.8;
+
+    private BlockFormat() {
+    }
+
+    /**
+     * Returns the largest body a block can have, codes are shorter than 256 bits, so a byte never takes more
+     * than 32 bytes, and headers and payload sizes never take more than 16 KiB
+     *
+     * @param length Uncompressed length of the block
+     * @return Largest body length in bytes
+     */
+    static long maxBodyLength(int length) {
+        return Math.min(32L * length + 16384, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Returns the length of everything but the block bodies: the header, the frames of the blocks, the end of the
+     * stream, the block index with it's checksum and the trailer
+     *
+     * @param blocks   Amount of blocks
+     * @param checksum Whether the blocks and stream have checksums
+     * @return Length in bytes
+     */
+    static long overhead(long blocks, boolean checksum) {
+        return 11 + 13 * blocks + 1 + 4 + 16 * blocks + (checksum ? 4 + 4 * blocks : 0) + 12;
+    }
+
+    static boolean isMagic(int b) {
+        return b == MAGIC >>> 24;
+    }
+
+    /**
+     * Encodes a block of data
+     *
+     * @param data    The data to encode, from it's position to it's limit, which isn't changed
+     * @param options The options to encode the block with
+     * @param metrics The metrics of the compression
+     * @return Encoded block
+     * @throws IOException Exception thrown when the body can't be written
+     */
+    static Block encode(ByteBuffer data, CompressionOptions options, Metrics metrics) throws IOException {
+        long start = metrics.start();
+        Model model = model(data, options);
+        if (metrics.isEnabled() && model.maxCodeLength > 0) {
+            if (model.contextModel != null) {
+                for (int[] lengths : model.contextModel.lengths()) metrics.code(lengths);
+            } else {
+                metrics.code(model.table.getLengths());
+            }
+        }
+        metrics.stop(Phase.MODEL, start);
+        boolean checksum = options.isChecksum();
+        int tail = checksum ? 4 : 0;
+
+        //Blocks of a single byte are stored as a run of it
+        if (model.type == TYPE_RUN) {
+            byte[] body = new byte[1 + tail];
+            body[0] = (byte) model.symbol;
+            return block(TYPE_RUN, data, body, body.length, checksum, metrics);
+        }
+        if (model.type == TYPE_STORED) {
+            int length = data.remaining();
+            byte[] body = options.getBufferAllocator().allocate(length + tail);
+            data.duplicate().get(body, 0, length);
+            return block(TYPE_STORED, data, body, length + tail, checksum, metrics);
+        }
+
+        //Encode payloads straight into the block body
+        start = metrics.start();
+        if (model.bodyLength > Integer.MAX_VALUE - 12) throw new IOException("Block is too large");
+        int bodyLength = (int) model.bodyLength + tail;
+        byte[] body = options.getBufferAllocator().allocate(bodyLength);
+        System.arraycopy(model.header, 0, body, 0, model.header.length);
+        if (model.contextModel != null) {
+            BitWriter bitWriter = new BitWriter(body, model.header.length);
+            CodeTable.encode(model.contextModel.codeTables(), data, bitWriter);
+            bitWriter.flush();
+        } else {
+            int offset = model.header.length;
+            for (int i = 0; i < model.streams; i++) {
+                BitWriter bitWriter = new BitWriter(body, offset);
+                model.table.encode(stream(data, model.streams, i), bitWriter);
+                bitWriter.flush();
+                offset = bitWriter.position();
+            }
+        }
+        metrics.stop(Phase.ENCODE, start);
+        int type = model.streams > 1 ? model.type | TYPE_INTERLEAVED : model.type;
+        return block(type, data, body, bodyLength, checksum, metrics);
+    }
+
+    /**
+     * Chooses how a block is encoded and computes the exact length of it's body from it's histograms,
+     * without encoding it
+     *
+     * @param data    The data of the block, from it's position to it's limit, which isn't changed
+     * @param options The options to encode the block with
+     * @return The model of the block
+     * @throws IOException Exception thrown when the header can't be written
+     */
+    static Model model(ByteBuffer data, CompressionOptions options) throws IOException {
+        //Count byte frequencies
+        int length = data.remaining();
+        int streams = options.isInterleaved() ? STREAMS : 1;
+        long[][] streamFrequencies = new long[streams][256];
+        long[] frequencies = streamFrequencies[0];
+        for (int i = 0; i < streams; i++) ByteHistogram.count(stream(data, streams, i), streamFrequencies[i]);
+        if (streams > 1) {
+            frequencies = new long[256];
+            for (long[] stream : streamFrequencies) for (int i = 0; i < 256; i++) frequencies[i] += stream[i];
+        }
+        Model model = new Model(frequencies);
+
+        //Blocks of a single byte are stored as a run of it
+        int symbols = 0;
+        for (int i = 0; i < 256; i++) {
+            if (frequencies[i] > 0) {
+                symbols++;
+                model.symbol = i;
+            }
+        }
+        if (symbols == 1) {
+            model.type = TYPE_RUN;
+            model.bodyLength = 1;
+            return model;
+        }
+
+        //Write Huffman tree or length limited canonical code lengths, unless the block is stored
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(320);
+        DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+        boolean stored = ByteHistogram.entropy(frequencies) >= STORED_ENTROPY;
+        if (stored) {
+            model.type = TYPE_STORED;
+        } else if (options.isCanonical()) {
+            model.type = TYPE_CANONICAL;
+            CanonicalCode code = new CanonicalCode(PackageMerge.limit(frequencies, options.getMaxCodeLength()));
+            code.write(dataOutputStream);
+            model.table = new CodeTable(code);
+        } else {
+            model.type = TYPE_TREE;
+            TreeNode tree = new TreeNode(frequencies);
+            tree.write(dataOutputStream);
+            model.table = new CodeTable(tree);
+        }
+
+        //Write payload size of every stream
+        long bodyLength = stored ? length : byteArrayOutputStream.size() + 8L * streams;
+        for (int i = 0; i < streams && !stored; i++) {
+            long size = model.table.size(streamFrequencies[i]);
+            dataOutputStream.writeLong(size);
+            bodyLength += (size + 7) >>> 3;
+        }
+        model.streams = stored ? 1 : streams;
+        model.header = byteArrayOutputStream.toByteArray();
+        model.bodyLength = bodyLength;
+
+        //Use order-1 codes when they're smaller than a single code
+        if (options.isContextModeling()) {
+            long[][] contextFrequencies = ContextModel.count(data);
+            ContextModel contextModel = ContextModel.build(contextFrequencies, options.getMaxCodeLength());
+            long size = contextModel.size(contextFrequencies);
+            byteArrayOutputStream = new ByteArrayOutputStream(1024);
+            dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+            contextModel.write(dataOutputStream);
+            dataOutputStream.writeLong(size);
+            long contextLength = byteArrayOutputStream.size() + ((size + 7) >>> 3);
+            if (contextLength < bodyLength) {
+                model.type = TYPE_CONTEXT;
+                model.streams = 1;
+                model.table = null;
+                model.contextModel = contextModel;
+                model.header = byteArrayOutputStream.toByteArray();
+                model.bodyLength = contextLength;
+            }
+        }
+
+        //Store blocks no code makes smaller, like small blocks of many distinct bytes
+        if (model.type != TYPE_STORED && model.bodyLength >= length) {
+            model.type = TYPE_STORED;
+            model.streams = 1;
+            model.table = null;
+            model.contextModel = null;
+            model.header = null;
+            model.bodyLength = length;
+        }
+
+        //Longest code used by the block
+        if (model.contextModel != null) {
+            for (int[] lengths : model.contextModel.lengths()) model.maxCodeLength = Math.max(model.maxCodeLength, maxLength(lengths));
+        } else if (model.table != null) {
+            model.maxCodeLength = maxLength(model.table.getLengths());
+        }
+        return model;
+    }
+
+    private static ByteBuffer stream(ByteBuffer data, int streams, int i) {
+        int segment = data.remaining() / streams;
+        ByteBuffer stream = data.duplicate();
+        stream.position(data.position() + i * segment);
+        if (i < streams - 1) stream.limit(stream.position() + segment);
+        return stream;
+    }
+
+    static int maxLength(int[] lengths) {
+        int max = 0;
+        for (int length : lengths) max = Math.max(max, length);
+        return max;
+    }
+
+    /**
+     * Returns a block, storing the checksum of it's data in the last 4 bytes of the body when asked to
+     */
+    private static Block block(int type, ByteBuffer data, byte[] body, int bodyLength, boolean checksum, Metrics metrics) {
+        if (!checksum) return new Block(type, data.remaining(), body, bodyLength);
+        long start = metrics.start();
+        ByteBuffer.wrap(body).putInt(bodyLength - 4, Crc32c.checksum(data));
+        metrics.stop(Phase.ENCODE, start);
+        return new Block(type | TYPE_CHECKSUM, data.remaining(), body, bodyLength);
+    }
+
+    /**
+     * Returns the checksum stored in a block
+     *
+     * @param block A block with {@link #TYPE_CHECKSUM}
+     * @return CRC-32C of the uncompressed data of the block
+     * @throws IOException Exception thrown when the block has no checksum
+     */
+    static int checksum(Block block) throws IOException {
+        if ((block.type & TYPE_CHECKSUM) == 0 || block.bodyLength < 4) throw new IOException("Block has no checksum");
+        return ByteBuffer.wrap(block.body).getInt(block.bodyLength - 4);
+    }
+
+    /**
+     * Adds the checksum of a block to the checksum of a stream
+     *
+     * @param streamChecksum The stream checksum
+     * @param block          A block with {@link #TYPE_CHECKSUM}
+     * @throws IOException Exception thrown when the block has no checksum
+     */
+    static void update(Checksum streamChecksum, Block block) throws IOException {
+        int checksum = checksum(block);
+        for (int shift = 24; shift >= 0; shift -= 8) streamChecksum.update(checksum >>> shift);
+    }
+
+    /**
+     * Decodes a block
+     *
+     * @param block         The block to decode
+     * @param output        Array to write the decoded data into
+     * @param maxCodeLength Maximum code length of the stream
+     * @param cache         Cache of decode tables, or {@code null}
+     * @param metrics       The metrics of the decompression
+     * @throws IOException          Exception thrown when the body can't be read
+     * @throws CompressionException Exception thrown when the block is corrupt
+     */
+    static void decode(Block block, byte[] output, int maxCodeLength, DecodeTableCache cache, Metrics metrics) throws IOException, CompressionException {
+        decode(block, output, 0, maxCodeLength, cache, metrics);
+    }
+
+    /**
+     * Decodes a block into an array at the given offset
+     *
+     * @param block         The block to decode
+     * @param output        Array to write the decoded data into
+     * @param outputOffset  Offset in the array to write the decoded data at
+     * @param maxCodeLength Maximum code length of the stream
+     * @param cache         Cache of decode tables, or {@code null}
+     * @param metrics       The metrics of the decompression
+     * @throws IOException          Exception thrown when the body can't be read
+     * @throws CompressionException Exception thrown when the block is corrupt
+     */
+    static void decode(Block block, byte[] output, int outputOffset, int maxCodeLength, DecodeTableCache cache, Metrics metrics) throws IOException, CompressionException {
+        if ((block.type & TYPE_CHECKSUM) == 0) {
+            decode(block.type, block.body, block.bodyLength, block.length, output, outputOffset, maxCodeLength, cache, metrics);
+            return;
+        }
+
+        //Check the decoded data against the checksum at the end of the body
+        int checksum = checksum(block);
+        decode(block.type & ~TYPE_CHECKSUM, block.body, block.bodyLength - 4, block.length, output, outputOffset, maxCodeLength, cache, metrics);
+        long start = metrics.start();
+        if (Crc32c.checksum(output, outputOffset, block.length) != checksum) throw new CompressionException("Checksum mismatch");
+        metrics.stop(Phase.DECODE, start);
+    }
+
+    private static void decode(int blockType, byte[] body, int limit, int length, byte[] output, int outputOffset,
+                               int maxCodeLength, DecodeTableCache cache, Metrics metrics) throws IOException, CompressionException {
+        //Stored and run blocks are copied
+        long start = metrics.start();
+        if (blockType == TYPE_STORED || blockType == TYPE_RUN) {
+            if (limit != (blockType == TYPE_STORED ? length : 1)) throw new CompressionException("Corrupt block");
+            if (blockType == TYPE_STORED) {
+                System.arraycopy(body, 0, output, outputOffset, length);
+            } else {
+                Arrays.fill(output, outputOffset, outputOffset + length, body[0]);
+            }
+            metrics.stop(Phase.DECODE, start);
+            return;
+        }
+
+        //Find the Huffman tree or code lengths and build or look up their table
+        int type = blockType & ~TYPE_INTERLEAVED;
+        int streams = (blockType & TYPE_INTERLEAVED) != 0 ? STREAMS : 1;
+        int headerLength;
+        DecodeTable[] tables;
+        if (type == TYPE_TREE) {
+            headerLength = TreeNode.headerLength(body, 0, limit);
+            tables = new DecodeTable[]{table(type, body, 0, headerLength, cache)};
+        } else if (type == TYPE_CANONICAL) {
+            headerLength = CanonicalCode.headerLength(body, 0, limit);
+            tables = new DecodeTable[]{table(type, body, 0, headerLength, cache)};
+        } else if (type == TYPE_CONTEXT && streams == 1) {
+            headerLength = ContextModel.headerLength(body, 0, limit);
+            tables = ContextModel.decodeTables(body, 0, headerLength, cache);
+        } else {
+            throw new CompressionException("Unknown block type " + blockType);
+        }
+        DecodeTable table = tables[0];
+        for (DecodeTable decodeTable : tables) {
+            if (type != TYPE_TREE && decodeTable.getMaxLength() > maxCodeLength) throw new CompressionException("Code length exceeds stream limit");
+            if (metrics.isEnabled()) metrics.code(decodeTable.getLengths());
+        }
+
+        //Read payload size of every stream
+        int offset = headerLength + 8 * streams;
+        if (offset > limit) throw new CompressionException("Corrupt block");
+        ByteBuffer sizes = ByteBuffer.wrap(body, headerLength, 8 * streams);
+        BitReader[] bitReaders = new BitReader[streams];
+        for (int i = 0; i < streams; i++) {
+            long size = sizes.getLong();
+            if (size < 0 || size > (long) (limit - offset) << 3) throw new CompressionException("Corrupt block");
+            bitReaders[i] = new BitReader(body, offset, size);
+            offset += (int) ((size + 7) >>> 3);
+        }
+        metrics.stop(Phase.MODEL, start);
+
+        //Decode payloads using lookup table
+        start = metrics.start();
+        int decoded;
+        if (type == TYPE_CONTEXT) {
+            decoded = DecodeTable.decode(bitReaders[0], tables, output, outputOffset, length);
+        } else if (streams > 1) {
+            decoded = table.decode(bitReaders, output, outputOffset, length / streams, length);
+        } else {
+            decoded = table.decode(bitReaders[0], output, outputOffset, length);
+        }
+        if (decoded != length) throw new CompressionException("Corrupt block");
+        metrics.stop(Phase.DECODE, start);
+    }
+
+    /**
+     * Returns the decode table of a Huffman tree or canonical code lengths
+     *
+     * @param type   {@link #TYPE_TREE} or {@link #TYPE_CANONICAL}
+     * @param header Array holding the serialized tree or code lengths
+     * @param offset Offset of the header in the array
+     * @param length Length of the header
+     * @param cache  Cache of decode tables, or {@code null}
+     * @return The decode table
+     * @throws IOException Exception thrown when the header is corrupt
+     */
+    static DecodeTable table(int type, byte[] header, int offset, int length, DecodeTableCache cache) throws IOException {
+        DecodeTableCache.Loader loader = () -> {
+            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(header, offset, length);
+            return type == TYPE_TREE
+                    ? new DecodeTable(TreeNode.read(byteArrayInputStream))
+                    : new DecodeTable(CanonicalCode.read(byteArrayInputStream));
+        };
+        return cache == null ? loader.load() : cache.get(type, header, offset, length, loader);
+    }
+
+    /**
+     * The way a block is encoded, the body length excludes the checksum
+     */
+    static class Model {
+        final long[] frequencies;
+        int type;
+        int symbol;
+        int streams = 1;
+        CodeTable table;
+        ContextModel contextModel;
+        byte[] header;
+        long bodyLength;
+        int maxCodeLength;
+
+        Model(long[] frequencies) {
+            this.frequencies = frequencies;
+        }
+    }
+
+    /**
+     * A single encoded block, the type tells how the body is encoded. The body is held in the first bytes
+     * of an array that can be longer, like the arrays of a {@link BufferAllocator}.
+     */
+    static class Block {
+        final int type;
+        final int length;
+        final byte[] body;
+        final int bodyLength;
+
+        Block(int type, int length, byte[] body) {
+            this(type, length, body, body.length);
+        }
+
+        Block(int type, int length, byte[] body, int bodyLength) {
+            this.type = type;
+            this.length = length;
+            this.body = body;
+            this.bodyLength = bodyLength;
+        }
+    }
+}
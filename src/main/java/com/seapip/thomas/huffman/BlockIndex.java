@@ -0,0 +1,190 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.BlockFormat.Block;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * The {@code BlockIndex} class reads single blocks of the block container format described by {@link BlockFormat}
+ * from a seekable channel. The block holding an uncompressed offset is found with a binary search over the block
+ * index at the end of the stream, which is read entry by entry, so finding a block takes a logarithmic amount of
+ * reads and no memory per block.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+class BlockIndex {
+    private final SeekableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(16);
+    private final int blockSize;
+    private final int maxCodeLength;
+    private final boolean checksum;
+    private final long indexPosition;
+    private final int size;
+    private final long length;
+
+    BlockIndex(SeekableByteChannel channel) throws IOException, CompressionException {
+        this.channel = channel;
+
+        //Read header
+        read(0, 11);
+        if (buffer.getInt() != BlockFormat.MAGIC) throw new CompressionException("Unknown format, stream has no block index");
+        int version = buffer.get() & 0xFF;
+        if (version != BlockFormat.VERSION) throw new CompressionException("Unsupported version " + version);
+        checksum = (buffer.get() & BlockFormat.FLAG_CHECKSUM) != 0;
+        blockSize = buffer.getInt();
+        maxCodeLength = buffer.get() & 0xFF;
+        if (blockSize < 1 || blockSize > CompressionOptions.MAX_BLOCK_SIZE || maxCodeLength > CanonicalCode.MAX_LENGTH) {
+            throw new CompressionException("Corrupt header");
+        }
+
+        //Read trailer and block count
+        long end = channel.size();
+        if (end < 11 + 1 + 4 + 12) throw new CompressionException("Corrupt index");
+        read(end - 12, 12);
+        indexPosition = buffer.getLong();
+        if (buffer.getInt() != BlockFormat.INDEX_MAGIC || indexPosition < 12 || indexPosition > end - 16) {
+            throw new CompressionException("Corrupt index");
+        }
+        read(indexPosition, 4);
+        size = buffer.getInt();
+        if (size < 0 || indexPosition + 4 + size * 16L + (checksum ? 4 : 0) + 12 != end) throw new CompressionException("Corrupt index");
+
+        //The uncompressed length ends with the last block
+        if (size == 0) {
+            length = 0;
+        } else {
+            length = rawOffset(size - 1) + blockLength(size - 1);
+        }
+    }
+
+    int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the amount of blocks
+     *
+     * @return Amount of blocks
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the uncompressed length of the stream
+     *
+     * @return Uncompressed length
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Returns the uncompressed offset of a block
+     *
+     * @param block Index of the block
+     * @return Uncompressed offset
+     * @throws IOException          Exception thrown when the index can't be read
+     * @throws CompressionException Exception thrown when the offset can't belong to the block
+     */
+    long rawOffset(int block) throws IOException, CompressionException {
+        read(indexPosition + 4 + block * 16L, 8);
+        long offset = buffer.getLong();
+
+        //Every block before it holds at least one byte and at most the block size
+        if (offset < block || offset > block * (long) blockSize) throw new CompressionException("Corrupt index");
+        return offset;
+    }
+
+    private int blockLength(int block) throws IOException, CompressionException {
+        read(streamOffset(block), 5);
+        int type = buffer.get() & 0xFF;
+        int blockLength = buffer.getInt();
+        if (type == BlockFormat.TYPE_END || blockLength < 1 || blockLength > blockSize) throw new CompressionException("Corrupt index");
+        return blockLength;
+    }
+
+    private long streamOffset(int block) throws IOException, CompressionException {
+        read(indexPosition + 12 + block * 16L, 8);
+        long offset = buffer.getLong();
+        if (offset < 11 || offset >= indexPosition) throw new CompressionException("Corrupt index");
+        return offset;
+    }
+
+    /**
+     * Finds the block holding an uncompressed offset, the found block is checked to start where the block
+     * before it ends and to hold the offset, so a damaged index can't return another block
+     *
+     * @param offset Uncompressed offset, less than {@link #length()}
+     * @return Index of the block
+     * @throws IOException          Exception thrown when the index can't be read
+     * @throws CompressionException Exception thrown when the index is corrupt
+     */
+    int find(long offset) throws IOException, CompressionException {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (rawOffset(middle) <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        long rawOffset = rawOffset(low);
+        long start = low == 0 ? 0 : rawOffset(low - 1) + blockLength(low - 1);
+        if (rawOffset != start || offset < rawOffset || offset >= rawOffset + blockLength(low)) {
+            throw new CompressionException("Corrupt index");
+        }
+        return low;
+    }
+
+    /**
+     * Reads a block, the body is allocated from the given allocator
+     *
+     * @param block           Index of the block
+     * @param bufferAllocator The allocator to allocate the body from
+     * @return The block
+     * @throws IOException          Exception thrown when the block can't be read
+     * @throws CompressionException Exception thrown when the block is corrupt
+     */
+    Block read(int block, BufferAllocator bufferAllocator) throws IOException, CompressionException {
+        long position = streamOffset(block);
+        read(position, 13);
+        int type = buffer.get() & 0xFF;
+        int blockLength = buffer.getInt();
+        long bodyLength = buffer.getLong();
+        if (type == BlockFormat.TYPE_END || blockLength < 1 || blockLength > blockSize || bodyLength < 0
+                || bodyLength > indexPosition - position - 13) {
+            throw new CompressionException("Corrupt block");
+        }
+        if (checksum && (type & BlockFormat.TYPE_CHECKSUM) == 0) throw new CompressionException("Block has no checksum");
+        byte[] body = bufferAllocator.allocate((int) bodyLength);
+        readFully(position + 13, ByteBuffer.wrap(body, 0, (int) bodyLength));
+        return new Block(type, blockLength, body, (int) bodyLength);
+    }
+
+    private void read(long position, int length) throws IOException, CompressionException {
+        buffer.clear();
+        buffer.limit(length);
+        readFully(position, buffer);
+        buffer.flip();
+    }
+
+    private void readFully(long position, ByteBuffer target) throws IOException, CompressionException {
+        channel.position(position);
+        while (target.hasRemaining()) {
+            if (channel.read(target) == -1) throw new CompressionException("Unexpected end of data");
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.BlockFormat.Block;
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+import com.seapip.thomas.huffman.CompressionStats.Phase;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The {@code BlockPipeline} class compresses and decompresses the blocks of the block container
+ * format on an executor. Blocks are read and written in order on the calling thread while up to
+ * twice the amount of threads blocks are encoded or decoded at the same time.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+class BlockPipeline {
+    private static final int MAX_WINDOW = 1 << 30;
+
+    private final CompressionOptions options;
+
+    BlockPipeline(CompressionOptions options) {
+        this.options = options;
+    }
+
+    void compress(InputStream inputStream, OutputStream outputStream) throws IOException, CompressionException {
+        Metrics metrics = new Metrics(options.getListener(), Operation.COMPRESS);
+        long allocation = metrics.allocation();
+        InputStream input = metrics.in(inputStream);
+        BlockWriter blockWriter = new BlockWriter(metrics.out(outputStream), options);
+        BufferAllocator allocator = options.getBufferAllocator();
+        Queue<byte[]> buffers = new ArrayDeque<>();
+        run(metrics, new Stage<Block>() {
+            @Override
+            public Job<Block> next() throws IOException {
+                byte[] block = buffers.isEmpty() ? allocator.allocate(options.getBlockSize()) : buffers.poll();
+                int length = readBlock(input, block, options.getBlockSize());
+                if (length == 0) {
+                    buffers.add(block);
+                    return null;
+                }
+                return new Job<>(block, () -> BlockFormat.encode(ByteBuffer.wrap(block, 0, length), options, metrics));
+            }
+
+            @Override
+            public void complete(Job<Block> job, Block result) throws IOException {
+                blockWriter.write(result);
+                allocator.release(result.body);
+                buffers.add(job.buffer);
+            }
+        });
+        for (byte[] buffer : buffers) allocator.release(buffer);
+        blockWriter.finish();
+        metrics.allocated(allocation);
+        metrics.complete();
+    }
+
+    /**
+     * Compresses a file by mapping it into memory, blocks are encoded straight from the mapped file and
+     * written to the output channel with gathering writes
+     *
+     * @param input  The file to compress
+     * @param output The channel to write the compressed data to
+     * @throws IOException          Exception thrown when the file can't be read or written
+     * @throws CompressionException Exception thrown when compression fails
+     */
+    void compress(FileChannel input, GatheringByteChannel output) throws IOException, CompressionException {
+        Metrics metrics = new Metrics(options.getListener(), Operation.COMPRESS);
+        long allocation = metrics.allocation();
+        BlockWriter blockWriter = new BlockWriter(output, options);
+        long size = input.size();
+        long windowSize = (long) (MAX_WINDOW / options.getBlockSize()) * options.getBlockSize();
+        run(metrics, new Stage<Block>() {
+            private long position = 0;
+            private long windowPosition = 0;
+            private MappedByteBuffer window;
+
+            @Override
+            public Job<Block> next() throws IOException {
+                if (position == size) return null;
+
+                //Map the next window of whole blocks once the current window is used up
+                if (window == null || position - windowPosition == window.capacity()) {
+                    windowPosition = position;
+                    window = input.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+                }
+                int offset = (int) (position - windowPosition);
+                int length = (int) Math.min(options.getBlockSize(), size - position);
+                ByteBuffer block = window.duplicate();
+                block.position(offset);
+                block.limit(offset + length);
+                position += length;
+                return new Job<>(null, () -> BlockFormat.encode(block, options, metrics));
+            }
+
+            @Override
+            public void complete(Job<Block> job, Block result) throws IOException {
+                blockWriter.write(result);
+                options.getBufferAllocator().release(result.body);
+            }
+        });
+        blockWriter.finish();
+        metrics.read(size);
+        metrics.written(blockWriter.position());
+        metrics.allocated(allocation);
+        metrics.complete();
+    }
+
+    void decompress(InputStream inputStream, OutputStream outputStream) throws IOException, CompressionException {
+        Metrics metrics = new Metrics(options.getListener(), Operation.DECOMPRESS);
+        long allocation = metrics.allocation();
+        BufferAllocator allocator = options.getBufferAllocator();
+        BlockReader blockReader = new BlockReader(metrics.in(inputStream), allocator);
+        OutputStream output = metrics.out(outputStream);
+        Queue<byte[]> buffers = new ArrayDeque<>();
+        run(metrics, new Stage<Block>() {
+            @Override
+            public Job<Block> next() throws IOException, CompressionException {
+                Block block = blockReader.next();
+                if (block == null) return null;
+                byte[] buffer = buffers.isEmpty() ? allocator.allocate(blockReader.getBlockSize()) : buffers.poll();
+                return new Job<>(buffer, () -> {
+                    BlockFormat.decode(block, buffer, blockReader.getMaxCodeLength(), options.getDecodeTableCache(), metrics);
+                    return block;
+                });
+            }
+
+            @Override
+            public void complete(Job<Block> job, Block result) throws IOException {
+                output.write(job.buffer, 0, result.length);
+                allocator.release(result.body);
+                buffers.add(job.buffer);
+            }
+        });
+        for (byte[] buffer : buffers) allocator.release(buffer);
+        metrics.allocated(allocation);
+        metrics.complete();
+    }
+
+    private <T> void run(Metrics metrics, Stage<T> stage) throws IOException, CompressionException {
+        Executor executor = options.getExecutor();
+        ForkJoinPool pool = null;
+        if (executor == null) {
+            if (options.getThreads() > 1) {
+                pool = new ForkJoinPool(options.getThreads());
+                executor = pool;
+            } else {
+                executor = Runnable::run;
+            }
+        }
+
+        //Keep a window of blocks in flight and complete them in order
+        int window = options.getThreads() > 1 ? options.getThreads() * 2 : 1;
+        Queue<Job<T>> jobs = new ArrayDeque<>(window);
+        try {
+            Job<T> job;
+            while ((job = next(metrics, stage)) != null) {
+                executor.execute(job.task);
+                jobs.add(job);
+                if (jobs.size() >= window) complete(metrics, stage, jobs.poll());
+            }
+            while (!jobs.isEmpty()) complete(metrics, stage, jobs.poll());
+        } finally {
+            //Jobs left after a failure would keep a shared executor busy
+            for (Job<T> job : jobs) job.task.cancel(true);
+            if (pool != null) pool.shutdownNow();
+        }
+    }
+
+    private static <T> Job<T> next(Metrics metrics, Stage<T> stage) throws IOException, CompressionException {
+        long start = metrics.start();
+        Job<T> job = stage.next();
+        metrics.stop(Phase.READ, start);
+        if (job != null && metrics.isEnabled()) {
+            //Measure allocations of jobs run by other threads
+            Callable<T> callable = job.callable;
+            job = new Job<>(job.buffer, () -> {
+                long allocation = metrics.taskAllocation();
+                T result = callable.call();
+                metrics.taskAllocated(allocation);
+                return result;
+            });
+        }
+        return job;
+    }
+
+    private static <T> void complete(Metrics metrics, Stage<T> stage, Job<T> job) throws IOException, CompressionException {
+        T result;
+        try {
+            result = job.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompressionException("Interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof CompressionException) throw (CompressionException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new CompressionException(String.valueOf(cause));
+        }
+        long start = metrics.start();
+        stage.complete(job, result);
+        metrics.stop(Phase.WRITE, start);
+    }
+
+    static int readBlock(InputStream inputStream, byte[] block, int size) throws IOException {
+        int length = 0;
+        int nRead;
+        while (length < size && (nRead = inputStream.read(block, length, size - length)) != -1) {
+            length += nRead;
+        }
+        return length;
+    }
+
+    private interface Stage<T> {
+        Job<T> next() throws IOException, CompressionException;
+
+        void complete(Job<T> job, T result) throws IOException;
+    }
+
+    private static class Job<T> {
+        private final byte[] buffer;
+        private final Callable<T> callable;
+        private final FutureTask<T> task;
+
+        Job(byte[] buffer, Callable<T> callable) {
+            this.buffer = buffer;
+            this.callable = callable;
+            this.task = new FutureTask<>(callable);
+        }
+    }
+}
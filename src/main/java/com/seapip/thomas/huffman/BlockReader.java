@@ -0,0 +1,113 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.BlockFormat.Block;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.Crc32c;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Checksum;
+
+/**
+ * The {@code BlockReader} class reads the block container format described by {@link BlockFormat}
+ * one block at a time.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+class BlockReader {
+    private final DataInputStream inputStream;
+    private final int blockSize;
+    private final int maxCodeLength;
+    private final Checksum streamChecksum;
+    private final BufferAllocator bufferAllocator;
+    private long position = 0;
+    private int count = 0;
+
+    BlockReader(InputStream inputStream) throws IOException, CompressionException {
+        this(inputStream, BufferAllocator.HEAP);
+    }
+
+    /**
+     * Creates a reader that allocates the bodies of blocks from an allocator, bodies can be released
+     * to it once a block has been decoded
+     */
+    BlockReader(InputStream inputStream, BufferAllocator bufferAllocator) throws IOException, CompressionException {
+        this.inputStream = new DataInputStream(inputStream);
+        this.bufferAllocator = bufferAllocator;
+
+        //Read header
+        if (this.inputStream.readInt() != BlockFormat.MAGIC) throw new CompressionException("Unknown format");
+        int version = this.inputStream.readUnsignedByte();
+        if (version != BlockFormat.VERSION) throw new CompressionException("Unsupported version " + version);
+        int flags = this.inputStream.readUnsignedByte();
+        streamChecksum = (flags & BlockFormat.FLAG_CHECKSUM) != 0 ? Crc32c.create() : null;
+        blockSize = this.inputStream.readInt();
+        maxCodeLength = this.inputStream.readUnsignedByte();
+        if (blockSize < 1 || blockSize > CompressionOptions.MAX_BLOCK_SIZE || maxCodeLength > CanonicalCode.MAX_LENGTH) {
+            throw new CompressionException("Corrupt header");
+        }
+        position += 11;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Reads the next block, the end of the stream is reached when {@code null} is returned
+     * after which the block index has been read and checked
+     *
+     * @return The block or {@code null} at the end of the stream
+     * @throws IOException          Exception thrown when the stream can't be read
+     * @throws CompressionException Exception thrown when the stream is corrupt
+     */
+    Block next() throws IOException, CompressionException {
+        int type = inputStream.readUnsignedByte();
+        if (type == BlockFormat.TYPE_END) {
+            readIndex(position + 1);
+            return null;
+        }
+
+        int length = inputStream.readInt();
+        long bodyLength = inputStream.readLong();
+        if (length < 1 || length > blockSize || bodyLength < 0 || bodyLength > BlockFormat.maxBodyLength(length)) {
+            throw new CompressionException("Corrupt block");
+        }
+        byte[] body = bufferAllocator.allocate((int) bodyLength);
+        inputStream.readFully(body, 0, (int) bodyLength);
+        position += 13 + bodyLength;
+        count++;
+        Block block = new Block(type, length, body, (int) bodyLength);
+
+        //Every block of a stream with checksums has one
+        if (streamChecksum != null) {
+            if ((type & BlockFormat.TYPE_CHECKSUM) == 0) throw new CompressionException("Block has no checksum");
+            BlockFormat.update(streamChecksum, block);
+        }
+        return block;
+    }
+
+    private void readIndex(long indexPosition) throws IOException, CompressionException {
+        int size = inputStream.readInt();
+        if (size != count) throw new CompressionException("Corrupt index");
+        byte[] entry = new byte[16];
+        for (int i = 0; i < size; i++) {
+            inputStream.readFully(entry);
+            if (streamChecksum != null) streamChecksum.update(entry, 0, entry.length);
+        }
+        if (streamChecksum != null && inputStream.readInt() != (int) streamChecksum.getValue()) {
+            throw new CompressionException("Stream checksum mismatch");
+        }
+        if (inputStream.readLong() != indexPosition || inputStream.readInt() != BlockFormat.INDEX_MAGIC) {
+            throw new CompressionException("Corrupt index");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.BlockFormat.Block;
+import com.seapip.thomas.huffman.huffman.Crc32c;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.zip.Checksum;
+
+/**
+ * The {@code BlockWriter} class writes the block container format described by {@link BlockFormat}
+ * and keeps track of the block index written at the end of the stream. Blocks are written to an output
+ * stream, to a channel with a single gathering write of the block header and body, or queued as buffers
+ * for a caller that writes them itself.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+class BlockWriter {
+    private final OutputStream outputStream;
+    private final GatheringByteChannel channel;
+    private final Queue<ByteBuffer> queue;
+    private final ByteBuffer header = ByteBuffer.allocate(13);
+    private final List<long[]> index = new ArrayList<>();
+    private final Checksum streamChecksum;
+    private long position = 0;
+    private long rawPosition = 0;
+
+    BlockWriter(OutputStream outputStream, CompressionOptions options) throws IOException {
+        this(outputStream, null, null, options);
+    }
+
+    BlockWriter(GatheringByteChannel channel, CompressionOptions options) throws IOException {
+        this(null, channel, null, options);
+    }
+
+    /**
+     * Creates a writer adding the buffers to write to a queue, buffers in the queue are never changed by the writer
+     *
+     * @param queue   The queue to add the buffers to
+     * @param options The block container options
+     * @throws IOException Never thrown when writing to a queue
+     */
+    BlockWriter(Queue<ByteBuffer> queue, CompressionOptions options) throws IOException {
+        this(null, null, queue, options);
+    }
+
+    private BlockWriter(OutputStream outputStream, GatheringByteChannel channel, Queue<ByteBuffer> queue, CompressionOptions options) throws IOException {
+        this.outputStream = outputStream;
+        this.channel = channel;
+        this.queue = queue;
+        this.streamChecksum = options.isChecksum() ? Crc32c.create() : null;
+
+        //Write header
+        header.clear();
+        header.putInt(BlockFormat.MAGIC);
+        header.put((byte) BlockFormat.VERSION);
+        header.put((byte) (options.isChecksum() ? BlockFormat.FLAG_CHECKSUM : 0));
+        header.putInt(options.getBlockSize());
+        header.put((byte) options.getMaxCodeLength());
+        header.flip();
+        write(header);
+    }
+
+    /**
+     * Returns the amount of bytes written so far
+     *
+     * @return Position in the output
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * Writes an encoded block
+     *
+     * @param block The encoded block, with a checksum when the options asked for one
+     * @throws IOException Exception thrown when the block can't be written
+     */
+    void write(Block block) throws IOException {
+        if (streamChecksum != null) BlockFormat.update(streamChecksum, block);
+        index.add(new long[]{rawPosition, position});
+        header.clear();
+        header.put((byte) block.type);
+        header.putInt(block.length);
+        header.putLong(block.bodyLength);
+        header.flip();
+        write(header, ByteBuffer.wrap(block.body, 0, block.bodyLength));
+        rawPosition += block.length;
+    }
+
+    /**
+     * Writes the end of the stream and the block index, the underlying stream or channel isn't closed
+     *
+     * @throws IOException Exception thrown when the index can't be written
+     */
+    void finish() throws IOException {
+        long indexPosition = position + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + index.size() * 16 + (streamChecksum != null ? 4 : 0) + 12);
+        buffer.put((byte) BlockFormat.TYPE_END);
+
+        //Write block index
+        buffer.putInt(index.size());
+        for (long[] entry : index) {
+            buffer.putLong(entry[0]);
+            buffer.putLong(entry[1]);
+        }
+        if (streamChecksum != null) {
+            streamChecksum.update(buffer.array(), 5, index.size() * 16);
+            buffer.putInt((int) streamChecksum.getValue());
+        }
+
+        //Write trailer
+        buffer.putLong(indexPosition);
+        buffer.putInt(BlockFormat.INDEX_MAGIC);
+        buffer.flip();
+        write(buffer);
+        if (outputStream != null) outputStream.flush();
+    }
+
+    private void write(ByteBuffer... buffers) throws IOException {
+        long length = 0;
+        for (ByteBuffer buffer : buffers) length += buffer.remaining();
+        if (channel != null) {
+            long written = 0;
+            while (written < length) written += channel.write(buffers);
+        } else if (queue != null) {
+            //The header buffer is reused for every block
+            for (ByteBuffer buffer : buffers) {
+                if (buffer == header) {
+                    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                    copy.put(buffer);
+                    copy.flip();
+                    buffer = copy;
+                }
+                queue.add(buffer);
+            }
+        } else {
+            for (ByteBuffer buffer : buffers) {
+                outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+        }
+        position += length;
+    }
+}
@@ -0,0 +1,45 @@
+package com.seapip.thomas.huffman;
+
+/**
+ * The {@code BufferAllocator} interface supplies the working memory of compressions and decompressions, block
+ * buffers, encoded block bodies and stream buffers are allocated from it and released back to it once they're
+ * no longer used. Allocators that keep released arrays let operations run without allocating new arrays once
+ * they've warmed up, see {@link PooledBufferAllocator} and {@link ThreadLocalBufferAllocator}.
+ * An allocator can be set on the options of any amount of operations with
+ * {@link CompressionOptions#setBufferAllocator(BufferAllocator)}.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public interface BufferAllocator {
+    /**
+     * Allocator that allocates a new array every time and ignores released arrays
+     */
+    BufferAllocator HEAP = new BufferAllocator() {
+        @Override
+        public byte[] allocate(int length) {
+            return new byte[length];
+        }
+
+        @Override
+        public void release(byte[] buffer) {
+            //Released arrays are collected
+        }
+    };
+
+    /**
+     * Returns an array of at least the given length, the content of the array is undefined
+     *
+     * @param length Minimum length of the array
+     * @return The array
+     */
+    byte[] allocate(int length);
+
+    /**
+     * Releases an array returned by {@link #allocate(int)}, the array must not be used after it's released
+     *
+     * @param buffer The array, or {@code null}
+     */
+    void release(byte[] buffer);
+}
@@ -0,0 +1,20 @@
+package com.seapip.thomas.huffman;
+
+/**
+ * The {@code CodecResult} enum tells why a call of {@link HuffmanEncoder} or {@link HuffmanDecoder} returned,
+ * like the results of a {@link java.nio.charset.CharsetEncoder}.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public enum CodecResult {
+    /**
+     * All input has been consumed, more input is needed to continue, or the stream is finished
+     */
+    UNDERFLOW,
+    /**
+     * The output buffer is full, output has to be drained before calling again
+     */
+    OVERFLOW
+}
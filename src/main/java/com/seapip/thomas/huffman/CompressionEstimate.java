@@ -0,0 +1,102 @@
+package com.seapip.thomas.huffman;
+
+/**
+ * The {@code CompressionEstimate} class holds the predicted result of a compression, computed from the byte
+ * histograms and code lengths of the data without encoding it, see {@link Huffman#estimate(byte[])} and
+ * {@link Huffman#estimate(java.nio.ByteBuffer, CompressionOptions)}. The compressed size is exact unless the
+ * estimate is sampled, in which case the payload of the blocks that weren't analyzed is extrapolated.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class CompressionEstimate {
+    private final long length;
+    private final long compressedSize;
+    private final double entropy;
+    private final int maxCodeLength;
+    private final long blocks;
+    private final long sampledLength;
+
+    CompressionEstimate(long length, long compressedSize, double entropy, int maxCodeLength, long blocks, long sampledLength) {
+        this.length = length;
+        this.compressedSize = compressedSize;
+        this.entropy = entropy;
+        this.maxCodeLength = maxCodeLength;
+        this.blocks = blocks;
+        this.sampledLength = sampledLength;
+    }
+
+    /**
+     * Returns the length of the uncompressed data
+     *
+     * @return Length in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the size of the compressed data, including headers, block frames and the block index
+     *
+     * @return Size in bytes
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Returns the Shannon entropy of the analyzed data, the least amount of bits per byte an order-0 code
+     * of the whole data can reach
+     *
+     * @return Entropy in bits per byte
+     */
+    public double getEntropy() {
+        return entropy;
+    }
+
+    /**
+     * Returns the payload size an order-0 code of the whole data can't go below, without any headers.
+     * Codes per block and context modeling can beat it on data which statistics change.
+     *
+     * @return Size in bytes
+     */
+    public long getEntropyBound() {
+        return (long) Math.ceil(entropy * length / 8);
+    }
+
+    /**
+     * Returns the longest code any analyzed block uses, zero when every block is stored or a run
+     *
+     * @return Code length in bits
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    public long getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the length of the data that has been analyzed, which is less than the length when sampled
+     *
+     * @return Length in bytes
+     */
+    public long getSampledLength() {
+        return sampledLength;
+    }
+
+    public boolean isSampled() {
+        return sampledLength < length;
+    }
+
+    /**
+     * Returns the uncompressed size divided by the compressed size
+     *
+     * @return Compression ratio
+     */
+    public double getRatio() {
+        return compressedSize == 0 ? 0 : (double) length / compressedSize;
+    }
+}
@@ -0,0 +1,27 @@
+package com.seapip.thomas.huffman;
+
+/**
+ * The {@code CompressionListener} interface receives the statistics of every compression and decompression
+ * it's registered for. Statistics are only measured when a listener other than {@link #NONE} is registered,
+ * so not listening costs nothing. Listeners can be called from any thread and should return quickly.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @see MetricsListener
+ * @since 1.8
+ */
+@FunctionalInterface
+public interface CompressionListener {
+    /**
+     * Listener that ignores all statistics, no statistics are measured when it's used
+     */
+    CompressionListener NONE = stats -> {
+    };
+
+    /**
+     * Called after a compression or decompression completed successfully
+     *
+     * @param stats Statistics of the compression or decompression
+     */
+    void completed(CompressionStats stats);
+}
@@ -0,0 +1,216 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The {@code CompressionOptions} class configures the block container format written by
+ * {@link Huffman#compress(java.io.InputStream, java.io.OutputStream, CompressionOptions)}.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class CompressionOptions {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    public static final int MAX_BLOCK_SIZE = 1 << 26;
+    public static final int MIN_CODE_LENGTH = 8;
+
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int threads = 1;
+    private boolean canonical = false;
+    private boolean interleaved = false;
+    private boolean contextModeling = false;
+    private boolean checksum = false;
+    private int maxCodeLength = CanonicalCode.MAX_LENGTH;
+    private Executor executor;
+    private CompressionListener listener = CompressionListener.NONE;
+    private DecodeTableCache decodeTableCache;
+    private BufferAllocator bufferAllocator = BufferAllocator.HEAP;
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the amount of uncompressed bytes in every block, each block gets it's own Huffman tree
+     *
+     * @param blockSize Block size in bytes, between 1 and {@link #MAX_BLOCK_SIZE}
+     * @return These options
+     */
+    public CompressionOptions setBlockSize(int blockSize) {
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE);
+        }
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Sets whether blocks store canonical code lengths instead of a Huffman tree, which gives smaller
+     * headers and lets blocks be decoded without building a tree, see {@link #setMaxCodeLength(int)}
+     *
+     * @param canonical Whether to use canonical codes
+     * @return These options
+     */
+    public CompressionOptions setCanonical(boolean canonical) {
+        this.canonical = canonical;
+        return this;
+    }
+
+    public boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /**
+     * Sets whether every block is split into four sub-streams, which are decoded side by side in a single loop
+     * so the decoder isn't limited by the serial dependency of every code on the one before it. Every block
+     * costs a few bytes more.
+     *
+     * @param interleaved Whether to interleave four sub-streams
+     * @return These options
+     */
+    public CompressionOptions setInterleaved(boolean interleaved) {
+        this.interleaved = interleaved;
+        return this;
+    }
+
+    public boolean isContextModeling() {
+        return contextModeling;
+    }
+
+    /**
+     * Sets whether blocks may code every byte with a code chosen by the byte before it. Bytes following similar
+     * bytes share a code, up to 32 codes per block, which compresses text and structured data much better.
+     * A block only uses these codes when they make it smaller, such blocks are never interleaved.
+     *
+     * @param contextModeling Whether to try order-1 context codes
+     * @return These options
+     */
+    public CompressionOptions setContextModeling(boolean contextModeling) {
+        this.contextModeling = contextModeling;
+        return this;
+    }
+
+    public boolean isChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Sets whether every block stores the CRC-32C checksum of it's uncompressed data and the block index the
+     * checksum of all blocks, which are checked when decompressing, see {@link Huffman#verify(java.nio.file.Path)}
+     *
+     * @param checksum Whether to write checksums
+     * @return These options
+     */
+    public CompressionOptions setChecksum(boolean checksum) {
+        this.checksum = checksum;
+        return this;
+    }
+
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Sets the maximum code length of canonical codes, longer codes are avoided with length limited
+     * code construction at a small cost in compression ratio. The limit is stored in the stream header
+     * so decoders know the size of their lookup tables in advance.
+     *
+     * @param maxCodeLength Maximum code length in bits, between {@link #MIN_CODE_LENGTH} and {@link CanonicalCode#MAX_LENGTH}
+     * @return These options
+     */
+    public CompressionOptions setMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < MIN_CODE_LENGTH || maxCodeLength > CanonicalCode.MAX_LENGTH) {
+            throw new IllegalArgumentException("Max code length must be between " + MIN_CODE_LENGTH + " and " + CanonicalCode.MAX_LENGTH);
+        }
+        this.maxCodeLength = maxCodeLength;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the amount of threads blocks are compressed and decompressed with, a pool with this
+     * amount of threads is created for every call unless an executor is set
+     *
+     * @param threads Amount of threads, 1 compresses on the calling thread
+     * @return These options
+     */
+    public CompressionOptions setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1");
+        this.threads = threads;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets a shared executor to compress and decompress blocks on, the amount of threads then
+     * limits how many blocks are queued on the executor at once
+     *
+     * @param executor The executor, or {@code null} to use the amount of threads
+     * @return These options
+     */
+    public CompressionOptions setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public CompressionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener that receives the statistics of every compression and decompression with these options
+     *
+     * @param listener The listener, {@link CompressionListener#NONE} measures nothing
+     * @return These options
+     */
+    public CompressionOptions setListener(CompressionListener listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener can't be null");
+        this.listener = listener;
+        return this;
+    }
+
+    public DecodeTableCache getDecodeTableCache() {
+        return decodeTableCache;
+    }
+
+    /**
+     * Sets a cache of decode tables shared by decompressions, streams and blocks with a header that's
+     * in the cache are decoded without reading the Huffman tree or building a table
+     *
+     * @param decodeTableCache The cache, or {@code null} to build the table of every header
+     * @return These options
+     */
+    public CompressionOptions setDecodeTableCache(DecodeTableCache decodeTableCache) {
+        this.decodeTableCache = decodeTableCache;
+        return this;
+    }
+
+    public BufferAllocator getBufferAllocator() {
+        return bufferAllocator;
+    }
+
+    /**
+     * Sets the allocator block buffers, block bodies and stream buffers are taken from and released to
+     *
+     * @param bufferAllocator The allocator, {@link BufferAllocator#HEAP} allocates every buffer
+     * @return These options
+     */
+    public CompressionOptions setBufferAllocator(BufferAllocator bufferAllocator) {
+        if (bufferAllocator == null) throw new IllegalArgumentException("Buffer allocator can't be null");
+        this.bufferAllocator = bufferAllocator;
+        return this;
+    }
+}
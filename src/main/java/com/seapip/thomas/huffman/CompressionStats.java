@@ -0,0 +1,141 @@
+package com.seapip.thomas.huffman;
+
+import java.util.Locale;
+
+/**
+ * The {@code CompressionStats} class holds the statistics of a single compression or decompression.
+ * Times are in nanoseconds, the time of a phase run by multiple threads is the sum of the time spent by
+ * every thread, so it can exceed the total time.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class CompressionStats {
+    private final Operation operation;
+    private final long[] times;
+    private final long totalTime;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final int symbols;
+    private final int maxCodeLength;
+    private final long allocatedBytes;
+
+    CompressionStats(Operation operation, long[] times, long totalTime, long bytesIn, long bytesOut,
+                     int symbols, int maxCodeLength, long allocatedBytes) {
+        this.operation = operation;
+        this.times = times;
+        this.totalTime = totalTime;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.symbols = symbols;
+        this.maxCodeLength = maxCodeLength;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the time spent in a phase, zero when the phase isn't part of the operation
+     *
+     * @param phase The phase
+     * @return Time in nanoseconds
+     */
+    public long getTime(Phase phase) {
+        return times[phase.ordinal()];
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Returns the uncompressed size divided by the compressed size
+     *
+     * @return Compression ratio, zero when there's no data
+     */
+    public double getRatio() {
+        long uncompressed = operation == Operation.COMPRESS ? bytesIn : bytesOut;
+        long compressed = operation == Operation.COMPRESS ? bytesOut : bytesIn;
+        return compressed == 0 ? 0 : (double) uncompressed / compressed;
+    }
+
+    /**
+     * Returns the amount of distinct bytes that have a code
+     *
+     * @return Amount of symbols
+     */
+    public int getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the longest code length of all Huffman codes used
+     *
+     * @return Code length in bits
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Returns the amount of memory allocated by all threads working on the operation
+     *
+     * @return Allocated bytes, or -1 when the virtual machine can't measure allocations
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder(operation.toString().toLowerCase(Locale.ROOT));
+        stringBuilder.append(": ").append(bytesIn).append(" -> ").append(bytesOut).append(" bytes");
+        stringBuilder.append(String.format(Locale.ROOT, " (ratio %.3f)", getRatio()));
+        stringBuilder.append(", ").append(symbols).append(" symbols, max code length ").append(maxCodeLength);
+        for (Phase phase : Phase.values()) {
+            if (getTime(phase) > 0) stringBuilder.append(", ").append(phase.toString().toLowerCase(Locale.ROOT)).append(' ').append(getTime(phase) / 1000000).append("ms");
+        }
+        stringBuilder.append(", total ").append(totalTime / 1000000).append("ms");
+        if (allocatedBytes >= 0) stringBuilder.append(", allocated ").append(allocatedBytes).append(" bytes");
+        return stringBuilder.toString();
+    }
+
+    public enum Operation {
+        COMPRESS,
+        DECOMPRESS
+    }
+
+    public enum Phase {
+        /**
+         * Reading the input
+         */
+        READ,
+        /**
+         * Counting frequencies and building, writing or reading the Huffman code
+         */
+        MODEL,
+        /**
+         * Encoding the data
+         */
+        ENCODE,
+        /**
+         * Decoding the data
+         */
+        DECODE,
+        /**
+         * Writing the output, when it isn't part of encoding or decoding
+         */
+        WRITE
+    }
+}
@@ -0,0 +1,238 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.CodeTable;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code ContextModel} class holds the order-1 codes of a context block, every byte is coded with the code
+ * of it's context, which is the byte before it, or zero for the first byte of a block. Contexts with similar
+ * distributions share a code, so the header stays small while the codes follow the data much closer than a
+ * single code does. Contexts are clustered by starting with the most frequent contexts as seeds and moving
+ * every context to the code that costs it the least bits a few times.
+ * <pre>
+ * code count (1 byte)
+ * context map: code of every context in as many bits as the code count - 1 needs, padded to a whole byte
+ * codes:       canonical code lengths of every code, see {@link CanonicalCode}
+ * </pre>
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class ContextModel {
+    static final int MAX_CODES = 32;
+
+    //Contexts seen less often than this never get a code of their own to start with
+    private static final long MIN_SEED = 256;
+    private static final int ITERATIONS = 4;
+
+    private final int[] contexts;
+    private final CanonicalCode[] codes;
+
+    private ContextModel(int[] contexts, CanonicalCode[] codes) {
+        this.contexts = contexts;
+        this.codes = codes;
+    }
+
+    /**
+     * Counts the frequency of every byte per context
+     *
+     * @param data The data to count, from it's position to it's limit, which isn't changed
+     * @return Frequencies indexed by context and then unsigned byte value
+     */
+    static long[][] count(ByteBuffer data) {
+        long[][] frequencies = new long[256][256];
+        int previous = 0;
+        for (int i = data.position(), end = data.limit(); i < end; i++) {
+            int b = data.get(i) & 0xFF;
+            frequencies[previous][b]++;
+            previous = b;
+        }
+        return frequencies;
+    }
+
+    /**
+     * Clusters contexts and creates a length limited code for every cluster
+     *
+     * @param frequencies   Frequencies indexed by context and then unsigned byte value
+     * @param maxCodeLength Maximum code length
+     * @return The model
+     */
+    static ContextModel build(long[][] frequencies, int maxCodeLength) {
+        long[] totals = new long[256];
+        Integer[] order = new Integer[256];
+        for (int i = 0; i < 256; i++) {
+            for (long frequency : frequencies[i]) totals[i] += frequency;
+            order[i] = i;
+        }
+
+        //The most frequent contexts are seeds, all others start in the first cluster
+        Arrays.sort(order, (a, b) -> Long.compare(totals[b], totals[a]));
+        int[] contexts = new int[256];
+        int clusters = 1;
+        for (int i = 0; i < MAX_CODES - 1 && totals[order[i]] >= MIN_SEED; i++) contexts[order[i]] = clusters++;
+
+        //Move every context to the cluster that codes it in the least bits
+        double[][] costs = new double[clusters][256];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long[][] sums = sums(frequencies, contexts, clusters);
+            for (int k = 0; k < clusters; k++) {
+                long total = 0;
+                for (long sum : sums[k]) total += sum;
+                double log = Math.log(total + 128.0);
+                for (int s = 0; s < 256; s++) costs[k][s] = log - Math.log(sums[k][s] + 0.5);
+            }
+            for (int c = 0; c < 256; c++) {
+                if (totals[c] == 0) continue;
+                double best = Double.MAX_VALUE;
+                for (int k = 0; k < clusters; k++) {
+                    double cost = 0;
+                    for (int s = 0; s < 256; s++) cost += frequencies[c][s] * costs[k][s];
+                    if (cost < best) {
+                        best = cost;
+                        contexts[c] = k;
+                    }
+                }
+            }
+        }
+
+        //Drop empty clusters and create their codes, contexts that are never used get the first code
+        long[][] sums = sums(frequencies, contexts, clusters);
+        int[] indices = new int[clusters];
+        List<CanonicalCode> codes = new ArrayList<>();
+        for (int k = 0; k < clusters; k++) {
+            indices[k] = codes.size();
+            if (Arrays.stream(sums[k]).anyMatch(sum -> sum > 0)) {
+                codes.add(new CanonicalCode(PackageMerge.limit(sums[k], maxCodeLength)));
+            } else {
+                indices[k] = -1;
+            }
+        }
+        for (int c = 0; c < 256; c++) contexts[c] = Math.max(0, indices[contexts[c]]);
+        return new ContextModel(contexts, codes.toArray(new CanonicalCode[0]));
+    }
+
+    private static long[][] sums(long[][] frequencies, int[] contexts, int clusters) {
+        long[][] sums = new long[clusters][256];
+        for (int c = 0; c < 256; c++) {
+            for (int s = 0; s < 256; s++) sums[contexts[c]][s] += frequencies[c][s];
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the size of the encoded data in bits
+     *
+     * @param frequencies Frequencies indexed by context and then unsigned byte value
+     * @return Size in bits
+     */
+    long size(long[][] frequencies) {
+        long size = 0;
+        for (int c = 0; c < 256; c++) {
+            CanonicalCode code = codes[contexts[c]];
+            for (int s = 0; s < 256; s++) size += frequencies[c][s] * code.getLength(s);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the code of every context
+     *
+     * @return Code tables indexed by context
+     */
+    CodeTable[] codeTables() {
+        CodeTable[] tables = new CodeTable[codes.length];
+        for (int i = 0; i < codes.length; i++) tables[i] = new CodeTable(codes[i]);
+        CodeTable[] contextTables = new CodeTable[256];
+        for (int c = 0; c < 256; c++) contextTables[c] = tables[contexts[c]];
+        return contextTables;
+    }
+
+    int[][] lengths() {
+        int[][] lengths = new int[codes.length][];
+        for (int i = 0; i < codes.length; i++) lengths[i] = codes[i].getLengths();
+        return lengths;
+    }
+
+    void write(OutputStream outputStream) throws IOException {
+        outputStream.write(codes.length);
+        int bits = bits(codes.length);
+        if (bits > 0) {
+            BitWriter bitWriter = new BitWriter(outputStream, 160);
+            for (int context : contexts) bitWriter.write(context, bits);
+            bitWriter.flush();
+        }
+        for (CanonicalCode code : codes) code.write(outputStream);
+    }
+
+    /**
+     * Returns the length of a serialized model without reading it
+     *
+     * @param data   Array holding the serialized model
+     * @param offset Offset of the model in the array
+     * @param limit  End of the data in the array
+     * @return Length of the serialized model in bytes
+     * @throws IOException Exception thrown when the data ends before the model does
+     */
+    static int headerLength(byte[] data, int offset, int limit) throws IOException {
+        if (limit - offset < 1) throw new IOException("Unexpected end of data");
+        int count = data[offset] & 0xFF;
+        if (count < 1 || count > MAX_CODES) throw new IOException("Corrupt context model");
+        int position = offset + 1 + ((256 * bits(count) + 7) >>> 3);
+        for (int i = 0; i < count; i++) {
+            if (position > limit) throw new IOException("Unexpected end of data");
+            position += CanonicalCode.headerLength(data, position, limit);
+        }
+        return position - offset;
+    }
+
+    /**
+     * Returns the decode table of every context of a serialized model
+     *
+     * @param data   Array holding the serialized model
+     * @param offset Offset of the model in the array
+     * @param limit  End of the data in the array
+     * @param cache  Cache of decode tables, or {@code null}
+     * @return Decode tables indexed by context
+     * @throws IOException Exception thrown when the model is corrupt
+     */
+    static DecodeTable[] decodeTables(byte[] data, int offset, int limit, DecodeTableCache cache) throws IOException {
+        headerLength(data, offset, limit);
+        int count = data[offset] & 0xFF;
+        int bits = bits(count);
+        int position = offset + 1 + ((256 * bits + 7) >>> 3);
+        DecodeTable[] tables = new DecodeTable[count];
+        for (int i = 0; i < count; i++) {
+            int length = CanonicalCode.headerLength(data, position, limit);
+            tables[i] = BlockFormat.table(BlockFormat.TYPE_CANONICAL, data, position, length, cache);
+            position += length;
+        }
+
+        //Read context map
+        DecodeTable[] contextTables = new DecodeTable[256];
+        BitReader bitReader = new BitReader(data, offset + 1, 256L * bits);
+        for (int c = 0; c < 256; c++) {
+            bitReader.fill();
+            int index = bitReader.peek(bits);
+            bitReader.skip(bits);
+            if (index >= count) throw new IOException("Corrupt context model");
+            contextTables[c] = tables[index];
+        }
+        return contextTables;
+    }
+
+    private static int bits(int count) {
+        return 32 - Integer.numberOfLeadingZeros(count - 1);
+    }
+}
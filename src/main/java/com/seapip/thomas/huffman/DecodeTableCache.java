@@ -0,0 +1,183 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code DecodeTableCache} class caches the decode tables of Huffman trees and canonical codes by their
+ * serialized header, streams and blocks with a header that has been seen before are decoded without reading
+ * the tree or building a table. The least recently used tables are evicted once the tables use more than the
+ * maximum weight in bytes. A cache can be shared between threads and set on the options of any amount of
+ * decompressions with {@link CompressionOptions#setDecodeTableCache(DecodeTableCache)}.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class DecodeTableCache {
+    public static final long DEFAULT_MAX_WEIGHT = 16L << 20;
+
+    private final long maxWeight;
+    private final Map<Key, DecodeTable> tables = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weight = 0;
+
+    public DecodeTableCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Creates a cache holding tables up to a maximum weight
+     *
+     * @param maxWeight Maximum weight of all tables and headers in bytes
+     */
+    public DecodeTableCache(long maxWeight) {
+        if (maxWeight < 1) throw new IllegalArgumentException("Max weight must be at least 1");
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the decode table of a header, the table is loaded and cached when it isn't cached yet
+     *
+     * @param type   The block type of the header, headers of different types are never equal
+     * @param header Array holding the serialized header
+     * @param offset Offset of the header in the array
+     * @param length Length of the header
+     * @param loader Loader building the table from the header
+     * @return The decode table
+     * @throws IOException Exception thrown when the header is corrupt
+     */
+    DecodeTable get(int type, byte[] header, int offset, int length, Loader loader) throws IOException {
+        Key key = new Key(type, header, offset, length);
+        synchronized (tables) {
+            DecodeTable table = tables.get(key);
+            if (table != null) {
+                hits.increment();
+                return table;
+            }
+        }
+        misses.increment();
+
+        //Build table without holding the lock, tables that are too large are never cached
+        DecodeTable table = loader.load();
+        key = new Key(type, Arrays.copyOfRange(header, offset, offset + length), 0, length);
+        long tableWeight = weight(key, table);
+        if (tableWeight > maxWeight) return table;
+        synchronized (tables) {
+            DecodeTable existing = tables.putIfAbsent(key, table);
+            if (existing != null) return existing;
+            weight += tableWeight;
+
+            //Evict least recently used tables
+            Iterator<Map.Entry<Key, DecodeTable>> iterator = tables.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                Map.Entry<Key, DecodeTable> entry = iterator.next();
+                weight -= weight(entry.getKey(), entry.getValue());
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        return table;
+    }
+
+    private static long weight(Key key, DecodeTable table) {
+        return table.getWeight() + 64L + key.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        synchronized (tables) {
+            return tables.size();
+        }
+    }
+
+    /**
+     * Returns the weight of all cached tables
+     *
+     * @return Weight in bytes
+     */
+    public long getWeight() {
+        synchronized (tables) {
+            return weight;
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Removes all cached tables, the counters aren't reset
+     */
+    public void clear() {
+        synchronized (tables) {
+            tables.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Builds the decode table of a header that isn't cached
+     */
+    @FunctionalInterface
+    interface Loader {
+        DecodeTable load() throws IOException;
+    }
+
+    /**
+     * A header of a block type, looked up in place in the array it was read into
+     */
+    private static class Key {
+        private final int type;
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        Key(int type, byte[] data, int offset, int length) {
+            this.type = type;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+
+            //FNV-1a hash of the type and header bytes
+            int h = 0x811C9DC5 ^ type;
+            for (int i = offset; i < offset + length; i++) h = (h ^ (data[i] & 0xFF)) * 0x01000193;
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            if (hash != key.hash || type != key.type || length != key.length) return false;
+            for (int i = 0; i < length; i++) if (data[offset + i] != key.data[key.offset + i]) return false;
+            return true;
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.seapip.thomas.huffman;
 
-import com.seapip.thomas.huffman.huffman.BitQueue;
-import com.seapip.thomas.huffman.huffman.ByteNode;
-import com.seapip.thomas.huffman.huffman.Node;
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+import com.seapip.thomas.huffman.CompressionStats.Phase;
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.ByteHistogram;
+import com.seapip.thomas.huffman.huffman.CodeTable;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
 import com.seapip.thomas.huffman.huffman.TreeNode;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * The {@code Huffman} class consists exclusively of static methods to compress and decompress
@@ -25,18 +30,32 @@ public final class Huffman {
     }
 
     /**
-     * Returns a compressed output stream for a given input stream
+     * Returns a compressed output stream for a given input stream, the whole input is buffered in memory
      *
      * @param inputStream  The data stream to read and compress
      * @param outputStream The data stream to write the compressed data too
      * @throws CompressionException Exception thrown when compressions fails
      */
     public static void compress(InputStream inputStream, OutputStream outputStream) throws CompressionException {
-        try {
-            //Start time
-            long startTime = System.currentTimeMillis();
+        compress(inputStream, outputStream, CompressionListener.NONE);
+    }
 
+    /**
+     * Returns a compressed output stream for a given input stream, the whole input is buffered in memory
+     *
+     * @param inputStream  The data stream to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @param listener     The listener to report the statistics of the compression to
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(InputStream inputStream, OutputStream outputStream, CompressionListener listener) throws CompressionException {
+        Metrics metrics = new Metrics(listener, Operation.COMPRESS);
+        long allocation = metrics.allocation();
+        inputStream = metrics.in(inputStream);
+        outputStream = metrics.out(outputStream);
+        try {
             //Read bytes from input stream
+            long start = metrics.start();
             byte[] bytes;
             try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
                 int nRead;
@@ -46,50 +65,197 @@ public final class Huffman {
                 }
                 bytes = byteArrayOutputStream.toByteArray();
             }
+            metrics.stop(Phase.READ, start);
 
             //Throw compression exception if content length is zero
             if (bytes.length == 0) throw new CompressionException("Data can't be empty");
 
-            //Output read time to console
-            long readTime = System.currentTimeMillis();
-            System.out.println("Read time: " + (readTime - startTime) + "ms"); //NOSONAR
-
             //Create Huffman tree
-            TreeNode tree = new TreeNode(bytes);
+            start = metrics.start();
+            long[] frequencies = ByteHistogram.countParallel(bytes, 0, bytes.length);
+            TreeNode tree = new TreeNode(frequencies);
+
+            //Convert Huffman tree to code table
+            CodeTable table = new CodeTable(tree);
+            long size = table.size(frequencies) + 1;
+            if (size > Integer.MAX_VALUE) throw new CompressionException("Data is too large to compress into a single stream");
+            if (metrics.isEnabled()) metrics.code(table.getLengths());
+            metrics.stop(Phase.MODEL, start);
 
-            //Convert Huffman tree to map
-            Map<Byte, Collection<Boolean>> map = new HashMap<>();
-            tree.toMap(map, new ArrayDeque<>());
+            //Write Huffman tree
+            start = metrics.start();
+            tree.write(outputStream);
 
-            //Encode bytes using map
-            BitQueue bits = new BitQueue(1000000);
-            for (byte b : bytes) bits.addAll(map.get(b));
+            //Write compressed data size in bits
+            outputStream.write(ByteBuffer.allocate(4).putInt((int) size).array());
 
-            //Convert encoded data to byte array
-            byte[] data = bits.toByteArray();
+            //Encode and write bytes using code table
+            BitWriter bitWriter = new BitWriter(outputStream);
+            table.encode(bytes, 0, bytes.length, bitWriter);
 
-            //Output compression time to console
-            long compressionTime = System.currentTimeMillis();
-            System.out.println("Compression time: " + (compressionTime - readTime) + "ms"); //NOSONAR
+            //Write end bit, the decoder reads one bit past the data
+            bitWriter.write(true);
+            bitWriter.flush();
+            metrics.stop(Phase.ENCODE, start);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        metrics.allocated(allocation);
+        metrics.complete();
+    }
+
+    /**
+     * Compresses a file without buffering it in memory, see {@link #compress(InputSupplier, OutputStream)}
+     * for the size limit of the single stream format
+     *
+     * @param path         The file to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(Path path, OutputStream outputStream) throws CompressionException {
+        compress(() -> Files.newInputStream(path), outputStream);
+    }
+
+    /**
+     * Compresses a re-readable source in two passes, the first pass counts the byte frequencies and the
+     * second pass encodes the data through a fixed size buffer, so memory use doesn't depend on the input size.
+     * The output is identical in format to {@link #compress(InputStream, OutputStream)}, which stores the size of
+     * the payload as an int amount of bits, so the encoded data is limited to {@code Integer.MAX_VALUE} bits, about
+     * 256 MB. Larger data, like multi gigabyte archives, can be compressed in constant memory into the block
+     * container format with {@link #compress(Path, Path, CompressionOptions)} or
+     * {@link #compress(InputStream, OutputStream, CompressionOptions)}.
+     *
+     * @param inputSupplier Supplier opening a new stream over the same data for every pass
+     * @param outputStream  The data stream to write the compressed data too
+     * @throws CompressionException Exception thrown when compressions fails or the encoded data exceeds the limit,
+     *                              which is found by the first pass before anything is written
+     */
+    public static void compress(InputSupplier inputSupplier, OutputStream outputStream) throws CompressionException {
+        compress(inputSupplier, outputStream, CompressionListener.NONE);
+    }
+
+    /**
+     * Compresses a re-readable source in two passes, see {@link #compress(InputSupplier, OutputStream)}
+     *
+     * @param inputSupplier Supplier opening a new stream over the same data for every pass
+     * @param outputStream  The data stream to write the compressed data too
+     * @param listener      The listener to report the statistics of the compression to
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(InputSupplier inputSupplier, OutputStream outputStream, CompressionListener listener) throws CompressionException {
+        Metrics metrics = new Metrics(listener, Operation.COMPRESS);
+        long allocation = metrics.allocation();
+        outputStream = metrics.out(outputStream);
+        long length = 0;
+        try {
+            byte[] data = new byte[8192];
+            long start = metrics.start();
+
+            //Count byte frequencies
+            long[] frequencies = new long[256];
+            try (InputStream inputStream = inputSupplier.open()) {
+                int nRead;
+                while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
+                    ByteHistogram.count(data, 0, nRead, frequencies);
+                    length += nRead;
+                }
+            }
+
+            //Throw compression exception if content length is zero
+            if (length == 0) throw new CompressionException("Data can't be empty");
+
+            //Create Huffman tree
+            TreeNode tree = new TreeNode(frequencies);
+
+            //Convert Huffman tree to code table, the compressed data size is stored as int including the end bit
+            CodeTable table = new CodeTable(tree);
+            long size = table.size(frequencies) + 1;
+            if (size > Integer.MAX_VALUE) throw new CompressionException("Data is too large to compress into a single stream");
+            if (metrics.isEnabled()) metrics.code(table.getLengths());
+            metrics.stop(Phase.MODEL, start);
 
             //Write Huffman tree
+            start = metrics.start();
             tree.write(outputStream);
 
             //Write compressed data size in bits
-            outputStream.write(ByteBuffer.allocate(4).putInt(bits.size()).array());
+            outputStream.write(ByteBuffer.allocate(4).putInt((int) size).array());
 
-            //Write compressed data
-            outputStream.write(data);
+            //Encode and write bytes using code table
+            BitWriter bitWriter = new BitWriter(outputStream);
+            long encoded = 0;
+            try (InputStream inputStream = inputSupplier.open()) {
+                int nRead;
+                while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
+                    if (!table.canEncode(data, 0, nRead)) throw new CompressionException("Data changed between passes");
+                    table.encode(data, 0, nRead, bitWriter);
+                    encoded += nRead;
+                }
+            }
+            if (encoded != length) throw new CompressionException("Data changed between passes");
 
-            //Output write time to console
-            long writeTime = System.currentTimeMillis();
-            System.out.println("Write time: " + (writeTime - compressionTime) + "ms"); //NOSONAR
+            //Write end bit, the decoder reads one bit past the data
+            bitWriter.write(true);
+            bitWriter.flush();
+            metrics.stop(Phase.ENCODE, start);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        metrics.allocated(allocation);
+        metrics.read(length);
+        metrics.complete();
+    }
+
+    /**
+     * Compresses a stream into the block container format, every block has it's own Huffman tree
+     * and only a single block is held in memory at a time, so there's no limit on the input size.
+     * The output can be decompressed with {@link #decompress(InputStream, OutputStream)}.
+     *
+     * @param inputStream  The data stream to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @param options      The block container options
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(InputStream inputStream, OutputStream outputStream, CompressionOptions options) throws CompressionException {
+        try {
+            new BlockPipeline(options).compress(inputStream, outputStream);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Output total time to console
-            System.out.println("Total time: " + (writeTime - startTime) + "ms"); //NOSONAR
+    /**
+     * Compresses a file into the block container format. The file is mapped into memory and blocks are encoded
+     * straight from the mapping and written to the output file with gathering writes, so the data isn't copied
+     * into intermediate buffers.
+     *
+     * @param input   The file to compress
+     * @param output  The file to write the compressed data too, it's replaced when it exists
+     * @param options The block container options
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(Path input, Path output, CompressionOptions options) throws CompressionException {
+        try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new BlockPipeline(options).compress(inputChannel, outputChannel);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Output Huffman tree to console
-            System.out.println(tree.toString()); //NOSONAR
+    /**
+     * Decompresses a file in either format into another file
+     *
+     * @param input   The compressed file
+     * @param output  The file to write the decompressed data too, it's replaced when it exists
+     * @param options The options to decompress blocks with
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static void decompress(Path input, Path output, CompressionOptions options) throws CompressionException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(input), 65536);
+             OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(output), 65536)) {
+            decompress(inputStream, outputStream, options);
         } catch (IOException e) {
             throw new CompressionException(e.getMessage());
         }
@@ -103,12 +269,38 @@ public final class Huffman {
      * @throws CompressionException Exception thrown when decompression fails
      */
     public static void decompress(InputStream inputStream, OutputStream outputStream) throws CompressionException {
+        decompress(inputStream, outputStream, new CompressionOptions());
+    }
+
+    /**
+     * Returns an uncompressed output stream for a given compressed input stream, blocks of the
+     * block container format are decompressed using the threads or executor of the given options
+     *
+     * @param inputStream  The compressed data stream
+     * @param outputStream The data stream to write the decompressed data too
+     * @param options      The options to decompress blocks with
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static void decompress(InputStream inputStream, OutputStream outputStream, CompressionOptions options) throws CompressionException {
         try {
-            //Start time
-            long startTime = System.currentTimeMillis();
+            //Decompress block container format when the stream starts with it's magic
+            PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream, 1);
+            int first = pushbackInputStream.read();
+            if (first != -1) pushbackInputStream.unread(first);
+            if (BlockFormat.isMagic(first)) {
+                new BlockPipeline(options).decompress(pushbackInputStream, outputStream);
+                return;
+            }
+            Metrics metrics = new Metrics(options.getListener(), Operation.DECOMPRESS);
+            long allocation = metrics.allocation();
+            inputStream = metrics.in(pushbackInputStream);
+            outputStream = metrics.out(outputStream);
 
-            //Read Huffman tree
-            TreeNode tree = TreeNode.read(inputStream);
+            //Read Huffman tree and build or look up it's table
+            long start = metrics.start();
+            byte[] header = TreeNode.readHeader(inputStream);
+            DecodeTable table = BlockFormat.table(BlockFormat.TYPE_TREE, header, 0, header.length, options.getDecodeTableCache());
+            if (metrics.isEnabled()) metrics.code(table.getLengths());
 
             DataInputStream dataInputStream = new DataInputStream(inputStream);
             byte[] data = new byte[8];
@@ -117,30 +309,267 @@ public final class Huffman {
             dataInputStream.readFully(data, 0, 4);
             int size = ByteBuffer.wrap(data).getInt();
 
-            //Decode compressed data using Huffman tree
-            Node node = tree;
-            int offset = 0;
-            for (int i = 0; i < Math.ceil(size / 8.0); i++) {
-                byte b = dataInputStream.readByte();
-                for (int mask = 1; mask != 256; mask <<= 1) {
-                    if (offset >= size) break;
-                    if (node instanceof ByteNode) {
-                        node.write(outputStream);
-                        node = tree;
-                    }
-                    offset++;
-                    node = ((b & mask) != 0) ? ((TreeNode) node).getRightNode() : ((TreeNode) node).getLeftNode();
-                }
+            //Decode compressed data using Huffman tree lookup table, the last bit is an end bit
+            if (size < 1) throw new CompressionException("Corrupt data");
+            metrics.stop(Phase.MODEL, start);
+
+            start = metrics.start();
+            BitReader bitReader = new BitReader(dataInputStream, size - 1L);
+            byte[] buffer = options.getBufferAllocator().allocate(65536);
+            while (bitReader.remaining() > 0) {
+                int length = table.decode(bitReader, buffer, 0, buffer.length);
+                outputStream.write(buffer, 0, length);
+            }
+            options.getBufferAllocator().release(buffer);
+            if ((size - 1) % 8 == 0) dataInputStream.readByte();
+            metrics.stop(Phase.DECODE, start);
+            metrics.allocated(allocation);
+            metrics.complete();
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Checks a file in either format without writing the decompressed data, see
+     * {@link #verify(InputStream, CompressionOptions)}
+     *
+     * @param input The compressed file
+     * @return Length of the decompressed data
+     * @throws CompressionException Exception thrown when the file is corrupt
+     */
+    public static long verify(Path input) throws CompressionException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(input), 65536)) {
+            return verify(inputStream, new CompressionOptions());
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses a stream in either format and discards the data. The checksum of every block and of the
+     * stream is checked when they've been written, see {@link CompressionOptions#setChecksum(boolean)}, streams
+     * without checksums are only checked to decode.
+     *
+     * @param inputStream The compressed data stream
+     * @param options     The options to decompress blocks with
+     * @return Length of the decompressed data
+     * @throws CompressionException Exception thrown when the data is corrupt
+     */
+    public static long verify(InputStream inputStream, CompressionOptions options) throws CompressionException {
+        long[] length = new long[1];
+        decompress(inputStream, new OutputStream() {
+            @Override
+            public void write(int b) {
+                length[0]++;
             }
 
-            //Output total time to console
-            System.out.println("Total time: " + (System.currentTimeMillis() - startTime) + "ms"); //NOSONAR
+            @Override
+            public void write(byte[] b, int off, int len) {
+                length[0] += len;
+            }
+        }, options);
+        return length[0];
+    }
+
+    /**
+     * Predicts the exact size {@link #compress(InputStream, OutputStream)} compresses data to, from it's histogram
+     * and Huffman tree, without encoding it
+     *
+     * @param data The data to analyze
+     * @return The estimate
+     * @throws CompressionException Exception thrown when the data is empty or too large for a single stream
+     */
+    public static CompressionEstimate estimate(byte[] data) throws CompressionException {
+        if (data.length == 0) throw new CompressionException("Data can't be empty");
+        long[] frequencies = ByteHistogram.countParallel(data, 0, data.length);
+        TreeNode tree = new TreeNode(frequencies);
+        CodeTable table = new CodeTable(tree);
+
+        //The tree, the size in bits and the data with it's end bit
+        long size = table.size(frequencies) + 1;
+        if (size > Integer.MAX_VALUE) throw new CompressionException("Data is too large to compress into a single stream");
+        ByteArrayOutputStream header = new ByteArrayOutputStream(320);
+        try {
+            tree.write(header);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        return new CompressionEstimate(data.length, header.size() + 4 + ((size + 7) >>> 3), ByteHistogram.entropy(frequencies),
+                BlockFormat.maxLength(table.getLengths()), 1, data.length);
+    }
+
+    /**
+     * Predicts the exact size {@link #compress(InputStream, OutputStream, CompressionOptions)} compresses data to.
+     * Every block is modeled the same way it's encoded, stored, run, Huffman and context coded blocks are chosen
+     * alike, but no block is encoded, so the cost is close to counting the histograms of the data.
+     *
+     * @param data    The data to analyze, from it's position to it's limit, which isn't changed
+     * @param options The block container options
+     * @return The estimate
+     * @throws CompressionException Exception thrown when a block can't be modeled
+     */
+    public static CompressionEstimate estimate(ByteBuffer data, CompressionOptions options) throws CompressionException {
+        return estimate(data, options, 0);
+    }
+
+    /**
+     * Predicts the size {@link #compress(InputStream, OutputStream, CompressionOptions)} compresses data to by
+     * modeling evenly spread blocks, the payload of the other blocks is extrapolated from them. The cost depends on
+     * the amount of sampled blocks instead of the length of the data.
+     *
+     * @param data         The data to analyze, from it's position to it's limit, which isn't changed
+     * @param options      The block container options
+     * @param sampleBlocks Amount of blocks to model, all blocks are modeled when zero
+     * @return The estimate, exact when every block has been modeled
+     * @throws CompressionException Exception thrown when a block can't be modeled
+     */
+    public static CompressionEstimate estimate(ByteBuffer data, CompressionOptions options, int sampleBlocks) throws CompressionException {
+        ByteBuffer source = data.duplicate();
+        try {
+            return estimate((position, length) -> {
+                source.limit(data.position() + (int) position + length);
+                source.position(data.position() + (int) position);
+                return source;
+            }, data.remaining(), options, sampleBlocks);
         } catch (IOException e) {
-            System.out.println(e.getMessage());
             throw new CompressionException(e.getMessage());
         }
     }
 
+    /**
+     * Predicts the size {@link #compress(Path, Path, CompressionOptions)} compresses a file to, see
+     * {@link #estimate(ByteBuffer, CompressionOptions, int)}. Only the sampled blocks are mapped into memory.
+     *
+     * @param input        The file to analyze
+     * @param options      The block container options
+     * @param sampleBlocks Amount of blocks to model, all blocks are modeled when zero
+     * @return The estimate, exact when every block has been modeled
+     * @throws CompressionException Exception thrown when the file can't be read
+     */
+    public static CompressionEstimate estimate(Path input, CompressionOptions options, int sampleBlocks) throws CompressionException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            return estimate((position, length) -> channel.map(FileChannel.MapMode.READ_ONLY, position, length),
+                    channel.size(), options, sampleBlocks);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    private static CompressionEstimate estimate(BlockSource source, long length, CompressionOptions options, int sampleBlocks) throws IOException {
+        if (sampleBlocks < 0) throw new IllegalArgumentException("Sample blocks can't be negative");
+        int blockSize = options.getBlockSize();
+        long blocks = (length + blockSize - 1) / blockSize;
+        long sampled = sampleBlocks == 0 ? blocks : Math.min(sampleBlocks, blocks);
+
+        //Model evenly spread blocks and sum their bodies and histograms
+        long[] frequencies = new long[256];
+        long sampledLength = 0;
+        long bodies = 0;
+        int maxCodeLength = 0;
+        for (long i = 0; i < sampled; i++) {
+            long position = i * blocks / sampled * blockSize;
+            int blockLength = (int) Math.min(blockSize, length - position);
+            BlockFormat.Model model = BlockFormat.model(source.read(position, blockLength), options);
+            for (int j = 0; j < 256; j++) frequencies[j] += model.frequencies[j];
+            sampledLength += blockLength;
+            bodies += model.bodyLength;
+            maxCodeLength = Math.max(maxCodeLength, model.maxCodeLength);
+        }
+
+        //Extrapolate the bodies of blocks that weren't modeled by their length
+        if (sampledLength < length) bodies = Math.round((double) bodies * length / sampledLength);
+        long size = BlockFormat.overhead(blocks, options.isChecksum()) + bodies;
+        return new CompressionEstimate(length, size, ByteHistogram.entropy(frequencies), maxCodeLength, blocks, sampledLength);
+    }
+
+    /**
+     * Decompresses a range of a file in the block container format, see
+     * {@link #decompressRange(SeekableByteChannel, long, int, CompressionOptions)}
+     *
+     * @param input  The compressed file
+     * @param offset Uncompressed offset of the range
+     * @param length Length of the range
+     * @return The decompressed range
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static byte[] decompressRange(Path input, long offset, int length) throws CompressionException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            return decompressRange(channel, offset, length, new CompressionOptions());
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses a range of a channel in the block container format. Only the blocks holding the range are read
+     * and decoded, they're found using the block index at the end of the stream, so the cost of reading a range
+     * depends on it's length and the block size of the options it was compressed with, not on the size of the stream.
+     * The range is cut off at the end of the data.
+     *
+     * @param channel The compressed data, positioned anywhere
+     * @param offset  Uncompressed offset of the range
+     * @param length  Length of the range
+     * @param options The options to decompress blocks with
+     * @return The decompressed range
+     * @throws CompressionException Exception thrown when decompression fails or the data has no block index
+     */
+    public static byte[] decompressRange(SeekableByteChannel channel, long offset, int length, CompressionOptions options) throws CompressionException {
+        if (offset < 0 || length < 0) throw new IllegalArgumentException("Offset and length can't be negative");
+        try {
+            Metrics metrics = new Metrics(options.getListener(), Operation.DECOMPRESS);
+            BlockIndex blockIndex = new BlockIndex(channel);
+            long end = Math.min(blockIndex.length(), offset + length);
+            if (offset >= end) return new byte[0];
+
+            //Decode blocks overlapping the range
+            BufferAllocator allocator = options.getBufferAllocator();
+            byte[] range = new byte[(int) (end - offset)];
+            byte[] buffer = allocator.allocate(blockIndex.getBlockSize());
+            long read = 0;
+            long next = -1;
+            for (int i = blockIndex.find(offset); ; i++) {
+                long blockOffset = blockIndex.rawOffset(i);
+                if (blockOffset >= end) break;
+
+                //Every next block starts where the last one ended
+                if (next >= 0 && blockOffset != next) throw new CompressionException("Corrupt index");
+                BlockFormat.Block block = blockIndex.read(i, allocator);
+                BlockFormat.decode(block, buffer, blockIndex.getMaxCodeLength(), options.getDecodeTableCache(), metrics);
+                allocator.release(block.body);
+                long from = Math.max(offset, blockOffset);
+                long to = Math.min(end, blockOffset + block.length);
+                if (from >= to) throw new CompressionException("Corrupt index");
+                next = blockOffset + block.length;
+                System.arraycopy(buffer, (int) (from - blockOffset), range, (int) (from - offset), (int) (to - from));
+                read += 13 + block.bodyLength;
+                if (i == blockIndex.size() - 1) break;
+            }
+            allocator.release(buffer);
+            metrics.read(read);
+            metrics.written(range.length);
+            metrics.complete();
+            return range;
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Supplies the data of a block to estimate
+     */
+    private interface BlockSource {
+        ByteBuffer read(long position, int length) throws IOException;
+    }
+
+    /**
+     * Supplies a new stream over the same data every time it's opened.
+     */
+    @FunctionalInterface
+    public interface InputSupplier {
+        InputStream open() throws IOException;
+    }
+
     public static class CompressionException extends Exception {
         public CompressionException(String message) {
             super(message);
@@ -0,0 +1,302 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.ByteHistogram;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.CodeTable;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code HuffmanCodec} class compresses and decompresses small messages with a Huffman code trained
+ * in advance, the dictionary. Messages only reference the dictionary by it's id instead of holding a
+ * Huffman tree, and the encode and decode tables are built once, so a codec is cheap to use for many
+ * small and similar messages. Codecs are immutable and can be shared between threads.
+ * <pre>
+ * dictionary: magic "HUFD" (4 bytes), version (1 byte), id (int), canonical code lengths
+ * message:    dictionary id (int), uncompressed length (unsigned LEB128 varint), payload
+ * </pre>
+ * The id is the CRC-32 of the canonical code lengths, so the same dictionary always has the same id.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class HuffmanCodec {
+    public static final int DEFAULT_MAX_CODE_LENGTH = 16;
+
+    private static final int MAGIC = 0x48554644;
+    private static final int VERSION = 1;
+
+    private final CanonicalCode code;
+    private final CodeTable codeTable;
+    private final DecodeTable decodeTable;
+    private final byte[] header;
+    private final int id;
+
+    private HuffmanCodec(CanonicalCode code) throws IOException {
+        this.code = code;
+        this.codeTable = new CodeTable(code);
+        this.decodeTable = new DecodeTable(code);
+
+        //Identify dictionary by the checksum of it's code lengths
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(320);
+        code.write(byteArrayOutputStream);
+        this.header = byteArrayOutputStream.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(header, 0, header.length);
+        this.id = (int) crc.getValue();
+    }
+
+    /**
+     * Trains a codec on sample messages, see {@link #train(Iterable, int)}
+     *
+     * @param samples Sample messages
+     * @return The trained codec
+     * @throws CompressionException Exception thrown when the codec can't be created
+     */
+    public static HuffmanCodec train(Iterable<byte[]> samples) throws CompressionException {
+        return train(samples, DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Trains a codec on sample messages, every byte gets a code even when it isn't part of the samples,
+     * so any message can be compressed with the codec
+     *
+     * @param samples       Sample messages
+     * @param maxCodeLength Maximum code length, between {@link CompressionOptions#MIN_CODE_LENGTH} and {@link CanonicalCode#MAX_LENGTH}
+     * @return The trained codec
+     * @throws CompressionException Exception thrown when the codec can't be created
+     */
+    public static HuffmanCodec train(Iterable<byte[]> samples, int maxCodeLength) throws CompressionException {
+        long[] frequencies = new long[256];
+        for (byte[] sample : samples) {
+            ByteHistogram.count(sample, 0, sample.length, frequencies);
+        }
+        return train(frequencies, maxCodeLength);
+    }
+
+    /**
+     * Trains a codec on a sample stream, see {@link #train(Iterable, int)}
+     *
+     * @param inputStream The sample data
+     * @return The trained codec
+     * @throws CompressionException Exception thrown when the samples can't be read
+     */
+    public static HuffmanCodec train(InputStream inputStream) throws CompressionException {
+        long[] frequencies = new long[256];
+        try {
+            byte[] data = new byte[8192];
+            int nRead;
+            while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
+                ByteHistogram.count(data, 0, nRead, frequencies);
+            }
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        return train(frequencies, DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    private static HuffmanCodec train(long[] frequencies, int maxCodeLength) throws CompressionException {
+        if (maxCodeLength < CompressionOptions.MIN_CODE_LENGTH || maxCodeLength > CanonicalCode.MAX_LENGTH) {
+            throw new IllegalArgumentException("Max code length must be between " + CompressionOptions.MIN_CODE_LENGTH + " and " + CanonicalCode.MAX_LENGTH);
+        }
+
+        //Give every byte a code, bytes that weren't seen get the longest codes
+        for (int i = 0; i < 256; i++) frequencies[i]++;
+        try {
+            return new HuffmanCodec(new CanonicalCode(PackageMerge.limit(frequencies, maxCodeLength)));
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the id of the dictionary every message of this codec references
+     *
+     * @return Dictionary id
+     */
+    public int getId() {
+        return id;
+    }
+
+    public int getMaxCodeLength() {
+        return code.getMaxLength();
+    }
+
+    /**
+     * Returns the id of the dictionary a message was compressed with
+     *
+     * @param message The compressed message
+     * @return Dictionary id
+     * @throws CompressionException Exception thrown when the message is too short
+     */
+    public static int getDictionaryId(byte[] message) throws CompressionException {
+        if (message.length < 4) throw new CompressionException("Corrupt message");
+        return (message[0] & 0xFF) << 24 | (message[1] & 0xFF) << 16 | (message[2] & 0xFF) << 8 | message[3] & 0xFF;
+    }
+
+    /**
+     * Compresses a message
+     *
+     * @param data The message
+     * @return The compressed message
+     * @throws CompressionException Exception thrown when compression fails
+     */
+    public byte[] encode(byte[] data) throws CompressionException {
+        return encode(data, 0, data.length);
+    }
+
+    /**
+     * Compresses a message
+     *
+     * @param data   Array holding the message
+     * @param offset Offset of the message in the array
+     * @param length Length of the message
+     * @return The compressed message
+     * @throws CompressionException Exception thrown when compression fails
+     */
+    public byte[] encode(byte[] data, int offset, int length) throws CompressionException {
+        //Write dictionary id and length
+        byte[] prefix = new byte[9];
+        prefix[0] = (byte) (id >>> 24);
+        prefix[1] = (byte) (id >>> 16);
+        prefix[2] = (byte) (id >>> 8);
+        prefix[3] = (byte) id;
+        int prefixLength = 4;
+        for (int value = length; ; value >>>= 7) {
+            if ((value & ~0x7F) == 0) {
+                prefix[prefixLength++] = (byte) value;
+                break;
+            }
+            prefix[prefixLength++] = (byte) (value & 0x7F | 0x80);
+        }
+
+        //Encode payload straight into the message
+        long size = codeTable.size(data, offset, length);
+        if (prefixLength + ((size + 7) >>> 3) > Integer.MAX_VALUE - 8) throw new CompressionException("Message is too large");
+        byte[] message = new byte[prefixLength + (int) ((size + 7) >>> 3)];
+        System.arraycopy(prefix, 0, message, 0, prefixLength);
+        try {
+            BitWriter bitWriter = new BitWriter(message, prefixLength);
+            codeTable.encode(data, offset, length, bitWriter);
+            bitWriter.flush();
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        return message;
+    }
+
+    /**
+     * Decompresses a message compressed with this codec
+     *
+     * @param message The compressed message
+     * @return The message
+     * @throws CompressionException Exception thrown when the message is corrupt or uses another dictionary
+     */
+    public byte[] decode(byte[] message) throws CompressionException {
+        if (getDictionaryId(message) != id) throw new CompressionException("Message uses another dictionary");
+
+        //Read length
+        int position = 4;
+        long length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position == message.length || shift > 28) throw new CompressionException("Corrupt message");
+            int b = message[position++];
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+
+        //Every byte takes at least one bit
+        long size = (long) (message.length - position) << 3;
+        if (length > size) throw new CompressionException("Corrupt message");
+
+        //Decode payload using the shared lookup table
+        byte[] data = new byte[(int) length];
+        try {
+            BitReader bitReader = new BitReader(message, position, size);
+            if (decodeTable.decode(bitReader, data, 0, data.length) != data.length) throw new CompressionException("Corrupt message");
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        return data;
+    }
+
+    /**
+     * Writes the dictionary of this codec
+     *
+     * @param outputStream The stream to write the dictionary to
+     * @throws IOException Exception thrown when the stream can't be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeInt(id);
+        dataOutputStream.write(header);
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Writes the dictionary of this codec to a file
+     *
+     * @param path The dictionary file
+     * @throws IOException Exception thrown when the file can't be written
+     */
+    public void write(Path path) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(outputStream);
+        }
+    }
+
+    /**
+     * Reads a codec from a dictionary
+     *
+     * @param inputStream The stream to read the dictionary from
+     * @return The codec
+     * @throws IOException          Exception thrown when the stream can't be read
+     * @throws CompressionException Exception thrown when the dictionary is corrupt
+     */
+    public static HuffmanCodec read(InputStream inputStream) throws IOException, CompressionException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        if (dataInputStream.readInt() != MAGIC) throw new CompressionException("Unknown format");
+        int version = dataInputStream.readUnsignedByte();
+        if (version != VERSION) throw new CompressionException("Unsupported version " + version);
+        int id = dataInputStream.readInt();
+        CanonicalCode code = CanonicalCode.read(dataInputStream);
+
+        //Every byte must have a code
+        for (int length : code.getLengths()) if (length == 0) throw new CompressionException("Corrupt dictionary");
+        HuffmanCodec codec = new HuffmanCodec(code);
+        if (codec.id != id) throw new CompressionException("Corrupt dictionary");
+        return codec;
+    }
+
+    /**
+     * Reads a codec from a dictionary file
+     *
+     * @param path The dictionary file
+     * @return The codec
+     * @throws IOException          Exception thrown when the file can't be read
+     * @throws CompressionException Exception thrown when the dictionary is corrupt
+     */
+    public static HuffmanCodec read(Path path) throws IOException, CompressionException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(inputStream);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.BlockFormat.Block;
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.Crc32c;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * The {@code HuffmanDecoder} class decompresses the block container format described by {@link BlockFormat}
+ * without blocking, see {@link HuffmanEncoder}. The decoder keeps it's position in the stream across calls, so
+ * input can be split anywhere. A block is decoded once it's body has been received, straight into the output
+ * when it fits, and otherwise into a buffer that's drained by the next calls.
+ * A decoder isn't thread safe and can't be reused after it's finished.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanDecoder {
+    private enum State {HEADER, TYPE, BLOCK, BODY, OUTPUT, INDEX, ENTRIES, CHECKSUM, TRAILER, FINISHED}
+
+    private final CompressionOptions options;
+    private final Metrics metrics;
+    private final ByteBuffer scratch = ByteBuffer.allocate(13);
+    private State state = State.HEADER;
+    private int blockSize;
+    private int maxCodeLength;
+    private Checksum streamChecksum;
+    private int type;
+    private int blockLength;
+    private ByteBuffer body;
+    private byte[] output;
+    private ByteBuffer pending;
+    private long position = 0;
+    private long indexPosition;
+    private long remaining;
+    private int count = 0;
+    private long length = 0;
+
+    public HuffmanDecoder() {
+        this(new CompressionOptions());
+    }
+
+    /**
+     * Creates a decoder decompressing blocks with the decode table cache and listener of the given options
+     *
+     * @param options The options to decompress blocks with
+     */
+    public HuffmanDecoder(CompressionOptions options) {
+        this.options = options;
+        this.metrics = new Metrics(options.getListener(), Operation.DECOMPRESS);
+        scratch.limit(11);
+    }
+
+    /**
+     * Decompresses input from the position of the source to the destination, the decoder is finished once the
+     * block index has been read and checked. Input after the end of the stream isn't consumed.
+     *
+     * @param src        The input, consumed up to it's limit unless {@link CodecResult#OVERFLOW} is returned
+     * @param dst        The output
+     * @param endOfInput Whether the source holds the last input
+     * @return {@link CodecResult#OVERFLOW} when the destination is full, otherwise {@link CodecResult#UNDERFLOW}
+     * @throws CompressionException Exception thrown when the input is corrupt or ends before the stream does
+     */
+    public CodecResult decode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) throws CompressionException {
+        try {
+            while (step(src, dst)) {
+                if (state == State.FINISHED) return CodecResult.UNDERFLOW;
+            }
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        if (state == State.OUTPUT) return CodecResult.OVERFLOW;
+        if (endOfInput) throw new CompressionException("Unexpected end of data");
+        return CodecResult.UNDERFLOW;
+    }
+
+    /**
+     * Returns whether the end of the stream and the block index have been read and all data has been decoded
+     *
+     * @return Whether the decoder is finished
+     */
+    public boolean isFinished() {
+        return state == State.FINISHED;
+    }
+
+    /**
+     * Advances the decoder by a single state
+     *
+     * @return Whether the decoder advanced, otherwise it's waiting for input or output space
+     */
+    private boolean step(ByteBuffer src, ByteBuffer dst) throws IOException, CompressionException {
+        switch (state) {
+            case HEADER:
+                if (!fill(src)) return false;
+                if (scratch.getInt() != BlockFormat.MAGIC) throw new CompressionException("Unknown format");
+                int version = scratch.get() & 0xFF;
+                if (version != BlockFormat.VERSION) throw new CompressionException("Unsupported version " + version);
+                if ((scratch.get() & BlockFormat.FLAG_CHECKSUM) != 0) streamChecksum = Crc32c.create();
+                blockSize = scratch.getInt();
+                maxCodeLength = scratch.get() & 0xFF;
+                if (blockSize < 1 || blockSize > CompressionOptions.MAX_BLOCK_SIZE || maxCodeLength > CanonicalCode.MAX_LENGTH) {
+                    throw new CompressionException("Corrupt header");
+                }
+                next(State.TYPE, 1);
+                return true;
+            case TYPE:
+                if (!fill(src)) return false;
+                type = scratch.get() & 0xFF;
+                if (type == BlockFormat.TYPE_END) {
+                    indexPosition = position;
+                    next(State.INDEX, 4);
+                } else {
+                    next(State.BLOCK, 12);
+                }
+                return true;
+            case BLOCK:
+                if (!fill(src)) return false;
+                blockLength = scratch.getInt();
+                long bodyLength = scratch.getLong();
+                if (blockLength < 1 || blockLength > blockSize || bodyLength < 0 || bodyLength > BlockFormat.maxBodyLength(blockLength)) {
+                    throw new CompressionException("Corrupt block");
+                }
+                if (streamChecksum != null && (type & BlockFormat.TYPE_CHECKSUM) == 0) throw new CompressionException("Block has no checksum");
+                body = ByteBuffer.wrap(options.getBufferAllocator().allocate((int) bodyLength), 0, (int) bodyLength);
+                state = State.BODY;
+                return true;
+            case BODY:
+                position += copy(src, body);
+                if (body.hasRemaining()) return false;
+                decodeBlock(dst);
+                return true;
+            case OUTPUT:
+                copy(pending, dst);
+                if (pending.hasRemaining()) return false;
+                next(State.TYPE, 1);
+                return true;
+            case INDEX:
+                if (!fill(src)) return false;
+                if (scratch.getInt() != count) throw new CompressionException("Corrupt index");
+                remaining = count * 16L;
+                state = State.ENTRIES;
+                return true;
+            case ENTRIES:
+                int n = (int) Math.min(remaining, src.remaining());
+                if (streamChecksum != null) {
+                    for (int i = 0; i < n; i++) streamChecksum.update(src.get(src.position() + i));
+                }
+                src.position(src.position() + n);
+                position += n;
+                remaining -= n;
+                if (remaining > 0) return false;
+                if (streamChecksum != null) {
+                    next(State.CHECKSUM, 4);
+                } else {
+                    next(State.TRAILER, 12);
+                }
+                return true;
+            case CHECKSUM:
+                if (!fill(src)) return false;
+                if (scratch.getInt() != (int) streamChecksum.getValue()) throw new CompressionException("Stream checksum mismatch");
+                next(State.TRAILER, 12);
+                return true;
+            case TRAILER:
+                if (!fill(src)) return false;
+                if (scratch.getLong() != indexPosition || scratch.getInt() != BlockFormat.INDEX_MAGIC) {
+                    throw new CompressionException("Corrupt index");
+                }
+                state = State.FINISHED;
+                options.getBufferAllocator().release(output);
+                output = null;
+                metrics.read(position);
+                metrics.written(length);
+                metrics.complete();
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    private void decodeBlock(ByteBuffer dst) throws IOException, CompressionException {
+        Block block = new Block(type, blockLength, body.array(), body.limit());
+        body = null;
+        try {
+            if (streamChecksum != null) BlockFormat.update(streamChecksum, block);
+            count++;
+            length += blockLength;
+
+            //Decode straight into the destination when the whole block fits
+            if (dst.hasArray() && dst.remaining() >= blockLength) {
+                BlockFormat.decode(block, dst.array(), dst.arrayOffset() + dst.position(), maxCodeLength, options.getDecodeTableCache(), metrics);
+                dst.position(dst.position() + blockLength);
+                next(State.TYPE, 1);
+                return;
+            }
+            if (output == null) output = options.getBufferAllocator().allocate(blockSize);
+            BlockFormat.decode(block, output, maxCodeLength, options.getDecodeTableCache(), metrics);
+            pending = ByteBuffer.wrap(output, 0, blockLength);
+            state = State.OUTPUT;
+        } finally {
+            options.getBufferAllocator().release(block.body);
+        }
+    }
+
+    private void next(State state, int length) {
+        this.state = state;
+        scratch.clear();
+        scratch.limit(length);
+    }
+
+    /**
+     * Fills the scratch buffer from the source, after which it's flipped for reading
+     *
+     * @return Whether the scratch buffer has been filled
+     */
+    private boolean fill(ByteBuffer src) {
+        position += copy(src, scratch);
+        if (scratch.hasRemaining()) return false;
+        scratch.flip();
+        return true;
+    }
+
+    private static int copy(ByteBuffer src, ByteBuffer dst) {
+        int n = Math.min(src.remaining(), dst.remaining());
+        ByteBuffer slice = src.duplicate();
+        slice.limit(slice.position() + n);
+        dst.put(slice);
+        src.position(src.position() + n);
+        return n;
+    }
+}
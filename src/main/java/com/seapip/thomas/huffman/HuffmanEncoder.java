@@ -0,0 +1,159 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The {@code HuffmanEncoder} class compresses into the block container format described by {@link BlockFormat}
+ * without blocking, for selector loops and asynchronous channels that read and write buffers as they become ready.
+ * Every call consumes as much input as possible and writes as much output as fits, output that doesn't fit is
+ * kept until the next call. Input is buffered up to the block size, unless the input holds a whole block, which
+ * is then encoded straight from the input buffer. Direct and heap buffers are both supported.
+ * <pre>
+ * while (encoder.encode(src, dst, endOfInput) == CodecResult.OVERFLOW) drain(dst);
+ * </pre>
+ * An encoder isn't thread safe and can't be reused after it's finished.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanEncoder {
+    private final CompressionOptions options;
+    private final Metrics metrics;
+    private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+    private final BlockWriter blockWriter;
+    private final ByteBuffer buffer;
+    private long length = 0;
+    private boolean finished = false;
+
+    public HuffmanEncoder() {
+        this(new CompressionOptions());
+    }
+
+    /**
+     * Creates an encoder compressing blocks with the given options, blocks are compressed on the calling thread
+     *
+     * @param options The block container options
+     */
+    public HuffmanEncoder(CompressionOptions options) {
+        this.options = options;
+        this.metrics = new Metrics(options.getListener(), Operation.COMPRESS);
+        try {
+            this.blockWriter = new BlockWriter(pending, options);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        //The capacity of the buffer is the block size even when the allocator returns a longer array
+        this.buffer = ByteBuffer.wrap(options.getBufferAllocator().allocate(options.getBlockSize()), 0, options.getBlockSize()).slice();
+    }
+
+    /**
+     * Compresses input from the position of the source to the destination. When the end of the input is reached
+     * the remaining input, the end of the stream and the block index are written, the encoder is finished once
+     * this call returns {@link CodecResult#UNDERFLOW}.
+     *
+     * @param src        The input, consumed up to it's limit unless {@link CodecResult#OVERFLOW} is returned
+     * @param dst        The output
+     * @param endOfInput Whether the source holds the last input
+     * @return {@link CodecResult#OVERFLOW} when the destination is full, otherwise {@link CodecResult#UNDERFLOW}
+     * @throws CompressionException Exception thrown when a block can't be encoded or the encoder is finished
+     */
+    public CodecResult encode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) throws CompressionException {
+        if (finished && src.hasRemaining()) throw new CompressionException("Encoder is finished");
+        try {
+            while (drain(dst)) {
+                if (finished) return CodecResult.UNDERFLOW;
+
+                //Encode a whole block from the source without buffering it
+                int blockSize = buffer.capacity();
+                if (buffer.position() == 0 && src.remaining() >= blockSize) {
+                    ByteBuffer block = src.duplicate();
+                    block.limit(block.position() + blockSize);
+                    writeBlock(block);
+                    src.position(src.position() + blockSize);
+                    continue;
+                }
+
+                //Buffer input up to a whole block
+                int n = Math.min(src.remaining(), buffer.remaining());
+                ByteBuffer slice = src.duplicate();
+                slice.limit(slice.position() + n);
+                buffer.put(slice);
+                src.position(src.position() + n);
+                if (!buffer.hasRemaining()) {
+                    writeBuffer();
+                } else if (endOfInput) {
+                    writeBuffer();
+                    blockWriter.finish();
+                    finished = true;
+                    options.getBufferAllocator().release(buffer.array());
+                    metrics.read(length);
+                    metrics.written(blockWriter.position());
+                    metrics.complete();
+                } else {
+                    return CodecResult.UNDERFLOW;
+                }
+            }
+            return CodecResult.OVERFLOW;
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all buffered input as a block, so it can be decoded without waiting for more input
+     *
+     * @param dst The output
+     * @return {@link CodecResult#OVERFLOW} when the destination is full, otherwise {@link CodecResult#UNDERFLOW}
+     * @throws CompressionException Exception thrown when the block can't be encoded
+     */
+    public CodecResult flush(ByteBuffer dst) throws CompressionException {
+        try {
+            if (!finished) writeBuffer();
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+        return drain(dst) ? CodecResult.UNDERFLOW : CodecResult.OVERFLOW;
+    }
+
+    /**
+     * Returns whether the end of the stream has been written to the destination
+     *
+     * @return Whether the encoder is finished
+     */
+    public boolean isFinished() {
+        return finished && pending.isEmpty();
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        writeBlock(buffer);
+        buffer.clear();
+    }
+
+    private void writeBlock(ByteBuffer data) throws IOException {
+        length += data.remaining();
+        blockWriter.write(BlockFormat.encode(data, options, metrics));
+    }
+
+    private boolean drain(ByteBuffer dst) {
+        while (!pending.isEmpty()) {
+            ByteBuffer next = pending.peek();
+            int n = Math.min(next.remaining(), dst.remaining());
+            ByteBuffer slice = next.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            next.position(next.position() + n);
+            if (next.hasRemaining()) return false;
+            pending.poll();
+        }
+        return true;
+    }
+}
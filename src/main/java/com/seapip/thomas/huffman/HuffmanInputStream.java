@@ -0,0 +1,143 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.BlockFormat.Block;
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+import com.seapip.thomas.huffman.Huffman.CompressionException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The {@code HuffmanInputStream} class decompresses the block container format one block at a time,
+ * reads return data as soon as the block holding it has been decoded, so only a single block is held in
+ * memory. Blocks written by a flush of a {@link HuffmanOutputStream} can be read before it's finished.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanInputStream extends FilterInputStream {
+    private final CompressionOptions options;
+    private final Metrics metrics;
+    private final BlockReader blockReader;
+    private byte[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private long length = 0;
+    private boolean finished = false;
+
+    public HuffmanInputStream(InputStream inputStream) throws IOException {
+        this(inputStream, new CompressionOptions());
+    }
+
+    /**
+     * Creates a stream decompressing blocks with the decode table cache and listener of the given options
+     *
+     * @param inputStream The stream to read the compressed data from
+     * @param options     The options to decompress blocks with
+     * @throws IOException Exception thrown when the header can't be read or is corrupt
+     */
+    public HuffmanInputStream(InputStream inputStream, CompressionOptions options) throws IOException {
+        super(inputStream);
+        this.options = options;
+        this.metrics = new Metrics(options.getListener(), Operation.DECOMPRESS);
+        try {
+            this.blockReader = new BlockReader(metrics.in(inputStream), options.getBufferAllocator());
+        } catch (CompressionException e) {
+            throw new IOException(e.getMessage());
+        }
+        this.buffer = options.getBufferAllocator().allocate(blockReader.getBlockSize());
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !readBlock()) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (position == limit && !readBlock()) return -1;
+        int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (position < limit || readBlock())) {
+            int count = (int) Math.min(n - skipped, limit - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        //Marks aren't supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark and reset aren't supported");
+    }
+
+    /**
+     * Releases the buffers of the stream and closes the underlying stream
+     *
+     * @throws IOException Exception thrown when the stream can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        release();
+        super.close();
+    }
+
+    private void release() {
+        options.getBufferAllocator().release(buffer);
+        buffer = null;
+        position = 0;
+        limit = 0;
+    }
+
+    private boolean readBlock() throws IOException {
+        if (finished) return false;
+        if (buffer == null) throw new IOException("Stream closed");
+        try {
+            Block block = blockReader.next();
+            if (block == null) {
+                finished = true;
+                release();
+                metrics.written(length);
+                metrics.complete();
+                return false;
+            }
+            try {
+                BlockFormat.decode(block, buffer, blockReader.getMaxCodeLength(), options.getDecodeTableCache(), metrics);
+            } finally {
+                options.getBufferAllocator().release(block.body);
+            }
+            position = 0;
+            limit = block.length;
+            length += block.length;
+            return true;
+        } catch (CompressionException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
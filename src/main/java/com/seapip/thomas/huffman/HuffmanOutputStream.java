@@ -0,0 +1,116 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code HuffmanOutputStream} class compresses written data into the block container format described by
+ * {@link BlockFormat}. Data is buffered up to the block size of the options, a full buffer and every
+ * {@link #flush()} is written as a self-contained block, so flushed data can be decompressed right away by a
+ * {@link HuffmanInputStream}. The index is written when the stream is finished or closed, after which the
+ * output can also be decompressed with {@link Huffman#decompress(java.io.InputStream, OutputStream)}.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanOutputStream extends FilterOutputStream {
+    private final CompressionOptions options;
+    private final Metrics metrics;
+    private final BlockWriter blockWriter;
+    private final int blockSize;
+    private byte[] buffer;
+    private int position = 0;
+    private long length = 0;
+    private boolean finished = false;
+
+    public HuffmanOutputStream(OutputStream outputStream) throws IOException {
+        this(outputStream, new CompressionOptions());
+    }
+
+    /**
+     * Creates a stream compressing blocks with the given options, blocks are compressed on the writing thread
+     *
+     * @param outputStream The stream to write the compressed data to
+     * @param options      The block container options
+     * @throws IOException Exception thrown when the header can't be written
+     */
+    public HuffmanOutputStream(OutputStream outputStream, CompressionOptions options) throws IOException {
+        super(outputStream);
+        this.options = options;
+        this.metrics = new Metrics(options.getListener(), Operation.COMPRESS);
+        this.blockWriter = new BlockWriter(outputStream, options);
+        this.blockSize = options.getBlockSize();
+        this.buffer = options.getBufferAllocator().allocate(blockSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (finished) throw new IOException("Stream is finished");
+        if (position == blockSize) writeBlock();
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) throw new IOException("Stream is finished");
+        while (len > 0) {
+            if (position == blockSize) writeBlock();
+            int n = Math.min(len, blockSize - position);
+            System.arraycopy(b, off, buffer, position, n);
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (position == 0) return;
+        BlockFormat.Block block = BlockFormat.encode(ByteBuffer.wrap(buffer, 0, position), options, metrics);
+        blockWriter.write(block);
+        options.getBufferAllocator().release(block.body);
+        length += position;
+        position = 0;
+    }
+
+    /**
+     * Writes all buffered data as a block and flushes the underlying stream
+     *
+     * @throws IOException Exception thrown when the stream can't be written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished) writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes all buffered data, the end of the stream and the block index without closing the underlying stream
+     *
+     * @throws IOException Exception thrown when the stream can't be written
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        writeBlock();
+        blockWriter.finish();
+        finished = true;
+        options.getBufferAllocator().release(buffer);
+        buffer = null;
+        metrics.read(length);
+        metrics.written(blockWriter.position());
+        metrics.complete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
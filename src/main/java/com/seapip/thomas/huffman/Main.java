@@ -1,50 +1,159 @@
 package com.seapip.thomas.huffman;
 
 import java.io.*;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 public class Main {
+    private static final String USAGE = "Usage: compress|decompress <input> [output]\n" +
+            "       verify <input>...\n" +
+            "       batch compress|decompress [--threads n] [--output directory] <file|directory|glob|@list>...";
 
     public static void main(String[] args) {
-        if (args.length > 1) {
-            File input = new File(args[1]);
-            try (FileInputStream fileInputStream = new FileInputStream(input)) {
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
-                switch (args[0].toLowerCase()) {
-                    case "compress":
-                    case "encode":
-                    case "enc":
-                    case "-c":
-                    case "-e":
-                    case "c":
-                    case "e":
-                        try (FileOutputStream fileOutputStream = new FileOutputStream(new File(args.length > 2 ? args[2] : input.toPath() + ".compressed"));
-                             BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);) {
-
-                            Huffman.compress(bufferedInputStream, bufferedOutputStream);
-                            bufferedOutputStream.flush();
-                        }
+        System.exit(run(args, System.out, System.err)); //NOSONAR
+    }
+
+    /**
+     * Runs a command and reports every error
+     *
+     * @param args Command line arguments
+     * @param out  Stream to print statistics to
+     * @param err  Stream to print errors to
+     * @return Exit code, 0 on success, 1 when a file failed and 2 for incorrect arguments
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length > 0 && (args[0].equalsIgnoreCase("batch") || args[0].equals("-b"))) return batch(args, out, err);
+        if (args.length > 1 && (args[0].equalsIgnoreCase("verify") || args[0].equals("-v"))) return verify(args, out, err);
+        if (args.length < 2) {
+            err.println(USAGE);
+            return 2;
+        }
+        Boolean compress = mode(args[0]);
+        if (compress == null) {
+            //Incorrect method parameter
+            err.println(USAGE);
+            return 2;
+        }
+        File input = new File(args[1]);
+
+        //Output statistics to console, compressed files can be checked with verify
+        CompressionOptions options = new CompressionOptions().setChecksum(true).setListener(out::println);
+        try (FileInputStream fileInputStream = new FileInputStream(input)) {
+            BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
+            if (compress) {
+                File compressed = new File(args.length > 2 ? args[2] : input.toPath() + BatchCompressor.SUFFIX);
+                if (input.isFile()) {
+                    //Compress regular files straight from a memory mapping into the block container format
+                    Huffman.compress(input.toPath(), compressed.toPath(), options);
+                    return 0;
+                }
+                //Pipes and other special files are compressed by the streaming block pipeline into the same format
+                try (FileOutputStream fileOutputStream = new FileOutputStream(compressed);
+                     BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);) {
+
+                    Huffman.compress(bufferedInputStream, bufferedOutputStream, options);
+                    bufferedOutputStream.flush();
+                }
+            } else {
+                String path = input.toPath().toString();
+                path = (path.endsWith(BatchCompressor.SUFFIX) ? path.substring(0, path.length() - BatchCompressor.SUFFIX.length()) : path);
+                File decompressed = new File(args.length > 2 ? args[2] : path + ".decompressed");
+                if (input.isFile()) {
+                    Huffman.decompress(input.toPath(), decompressed.toPath(), options);
+                    return 0;
+                }
+                try (FileOutputStream fileOutputStream = new FileOutputStream(decompressed);
+                     BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);) {
+
+                    Huffman.decompress(bufferedInputStream, bufferedOutputStream, options);
+                    bufferedOutputStream.flush();
+                }
+            }
+            return 0;
+        } catch (IOException | Huffman.CompressionException e) {
+            //Files could not be read and/or written
+            err.println(input + ": " + e);
+            return 1;
+        }
+    }
+
+    private static int batch(String[] args, PrintStream out, PrintStream err) {
+        Boolean compress = args.length > 1 ? mode(args[1]) : null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                    case "-t":
+                        threads = Integer.parseInt(args[++i]);
                         break;
-                    case "decompress":
-                    case "decode":
-                    case "dec":
-                    case "-d":
-                    case "d":
-                        String path = input.toPath().toString();
-                        path = (path.endsWith(".compressed") ? path.substring(0, path.length() - 11) : path);
-                        try (FileOutputStream fileOutputStream = new FileOutputStream(new File(args.length > 2 ? args[2] : path + ".decompressed"));
-                             BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);) {
-
-                            Huffman.decompress(bufferedInputStream, bufferedOutputStream);
-                            bufferedOutputStream.flush();
-                        }
+                    case "--output":
+                    case "-o":
+                        output = args[++i];
                         break;
                     default:
-                        //Incorrect method parameter
+                        inputs.add(args[i]);
                         break;
                 }
-            } catch (IOException | Huffman.CompressionException ignored) {
-                //Files could not be read and/or written
             }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            compress = null;
+        }
+        if (compress == null || inputs.isEmpty() || threads < 1) {
+            err.println(USAGE);
+            return 2;
+        }
+
+        //Every file is compressed by a single thread, files are compressed in parallel instead
+        CompressionOptions options = new CompressionOptions().setThreads(1).setChecksum(true);
+        try {
+            BatchCompressor batchCompressor = new BatchCompressor(compress, threads, output == null ? null : Paths.get(output), options);
+            return batchCompressor.run(inputs, out, err) ? 0 : 1;
+        } catch (IOException e) {
+            err.println(e);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println(e);
+            return 1;
+        }
+    }
+
+    private static int verify(String[] args, PrintStream out, PrintStream err) {
+        int code = 0;
+        for (int i = 1; i < args.length; i++) {
+            try {
+                out.println(args[i] + ": ok, " + Huffman.verify(Paths.get(args[i])) + " bytes");
+            } catch (Huffman.CompressionException e) {
+                err.println(args[i] + ": " + e);
+                code = 1;
+            }
+        }
+        return code;
+    }
+
+    private static Boolean mode(String mode) {
+        switch (mode.toLowerCase(Locale.ROOT)) {
+            case "compress":
+            case "encode":
+            case "enc":
+            case "-c":
+            case "-e":
+            case "c":
+            case "e":
+                return true;
+            case "decompress":
+            case "decode":
+            case "dec":
+            case "-d":
+            case "d":
+                return false;
+            default:
+                return null; //NOSONAR
         }
     }
 }
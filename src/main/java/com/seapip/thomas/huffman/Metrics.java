@@ -0,0 +1,222 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.CompressionStats.Operation;
+import com.seapip.thomas.huffman.CompressionStats.Phase;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code Metrics} class measures the statistics of a single operation for a {@link CompressionListener}.
+ * Nothing is measured when the listener is {@link CompressionListener#NONE}. Phases, codes and allocations
+ * can be measured from any thread, the byte counts are set by the thread running the operation, which is
+ * the thread that created the metrics.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class Metrics {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final CompressionListener listener;
+    private final Operation operation;
+    private final boolean enabled;
+    private final long startTime;
+    private final Thread owner = Thread.currentThread();
+    private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray symbols = new AtomicLongArray(4);
+    private final AtomicInteger maxCodeLength = new AtomicInteger();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private long bytesIn = 0;
+    private long bytesOut = 0;
+
+    Metrics(CompressionListener listener, Operation operation) {
+        this.listener = listener;
+        this.operation = operation;
+        this.enabled = listener != CompressionListener.NONE;
+        this.startTime = enabled ? System.nanoTime() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) return sunThreads;
+            }
+        } catch (LinkageError | RuntimeException ignored) {
+            //Allocations can't be measured on this virtual machine
+        }
+        return null;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the start time of a phase
+     *
+     * @return Time in nanoseconds
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time since the start time to a phase
+     *
+     * @param phase The phase
+     * @param start Start time returned by {@link #start()}
+     */
+    void stop(Phase phase, long start) {
+        if (enabled) times.addAndGet(phase.ordinal(), System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the amount of memory allocated by the current thread so far
+     *
+     * @return Allocated bytes
+     */
+    long allocation() {
+        return enabled && THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Adds the memory allocated by the current thread since a previous allocation measurement
+     *
+     * @param start Allocated bytes returned by {@link #allocation()} on the current thread
+     */
+    void allocated(long start) {
+        if (enabled && THREADS != null) allocatedBytes.addAndGet(allocation() - start);
+    }
+
+    /**
+     * Returns the allocation measurement of a task, tasks run on the thread of the operation are already
+     * measured as part of the operation
+     *
+     * @return Allocated bytes, or -1 when the task isn't measured on it's own
+     */
+    long taskAllocation() {
+        return enabled && THREADS != null && Thread.currentThread() != owner ? allocation() : -1;
+    }
+
+    /**
+     * Adds the memory allocated by a task
+     *
+     * @param start Allocated bytes returned by {@link #taskAllocation()} on the current thread
+     */
+    void taskAllocated(long start) {
+        if (start >= 0) allocatedBytes.addAndGet(allocation() - start);
+    }
+
+    /**
+     * Adds the symbols and code lengths of a Huffman code
+     *
+     * @param lengths Code lengths indexed by unsigned byte value
+     */
+    void code(int[] lengths) {
+        if (!enabled) return;
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] == 0) continue;
+            long bit = 1L << i;
+            symbols.accumulateAndGet(i >>> 6, bit, (a, b) -> a | b);
+            maxCodeLength.accumulateAndGet(lengths[i], Math::max);
+        }
+    }
+
+    /**
+     * Adds bytes read as input of the operation that weren't read through {@link #in(InputStream)}
+     *
+     * @param bytes Amount of bytes
+     */
+    void read(long bytes) {
+        bytesIn += bytes;
+    }
+
+    /**
+     * Adds bytes written as output of the operation that weren't written through {@link #out(OutputStream)}
+     *
+     * @param bytes Amount of bytes
+     */
+    void written(long bytes) {
+        bytesOut += bytes;
+    }
+
+    /**
+     * Returns a stream counting the bytes read as input of the operation
+     *
+     * @param inputStream The input stream of the operation
+     * @return Counting stream, or the input stream itself when nothing is measured
+     */
+    InputStream in(InputStream inputStream) {
+        if (!enabled) return inputStream;
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) bytesIn++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int nRead = super.read(b, off, len);
+                if (nRead > 0) bytesIn += nRead;
+                return nRead;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                bytesIn += skipped;
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Returns a stream counting the bytes written as output of the operation
+     *
+     * @param outputStream The output stream of the operation
+     * @return Counting stream, or the output stream itself when nothing is measured
+     */
+    OutputStream out(OutputStream outputStream) {
+        if (!enabled) return outputStream;
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesOut++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesOut += len;
+            }
+        };
+    }
+
+    /**
+     * Reports the statistics to the listener
+     */
+    void complete() {
+        if (!enabled) return;
+        long totalTime = System.nanoTime() - startTime;
+        long[] phases = new long[times.length()];
+        for (int i = 0; i < phases.length; i++) phases[i] = times.get(i);
+        int count = 0;
+        for (int i = 0; i < symbols.length(); i++) count += Long.bitCount(symbols.get(i));
+        listener.completed(new CompressionStats(operation, phases, totalTime, bytesIn, bytesOut, count,
+                maxCodeLength.get(), THREADS != null ? allocatedBytes.get() : -1));
+    }
+}
@@ -0,0 +1,172 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.CompressionStats.Phase;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code MetricsListener} class aggregates the statistics of every operation into counters and histograms,
+ * which can be polled and exported to a monitoring system. Metrics are named after the operation, for example
+ * {@code compress.bytes.in} and {@code decompress.time.decode}, times are in nanoseconds.
+ * <pre>
+ * counters:   operations, bytes.in, bytes.out, bytes.allocated
+ * histograms: time.total, time.read, time.model, time.encode, time.decode, time.write,
+ *             ratio.percent, symbols, code.length
+ * </pre>
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class MetricsListener implements CompressionListener {
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void completed(CompressionStats stats) {
+        String prefix = stats.getOperation().toString().toLowerCase(Locale.ROOT) + '.';
+        count(prefix + "operations", 1);
+        count(prefix + "bytes.in", stats.getBytesIn());
+        count(prefix + "bytes.out", stats.getBytesOut());
+        if (stats.getAllocatedBytes() >= 0) count(prefix + "bytes.allocated", stats.getAllocatedBytes());
+        record(prefix + "time.total", stats.getTotalTime());
+        for (Phase phase : Phase.values()) {
+            if (stats.getTime(phase) > 0) record(prefix + "time." + phase.toString().toLowerCase(Locale.ROOT), stats.getTime(phase));
+        }
+        record(prefix + "ratio.percent", Math.round(stats.getRatio() * 100));
+        record(prefix + "symbols", stats.getSymbols());
+        record(prefix + "code.length", stats.getMaxCodeLength());
+    }
+
+    private void count(String name, long value) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(value);
+    }
+
+    private void record(String name, long value) {
+        histograms.computeIfAbsent(name, key -> new Histogram()).record(value);
+    }
+
+    /**
+     * Returns the value of a counter
+     *
+     * @param name Name of the counter
+     * @return Value of the counter, zero when nothing has been counted
+     */
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the current value of every counter
+     *
+     * @return Counter values by name
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    /**
+     * Returns a histogram
+     *
+     * @param name Name of the histogram
+     * @return The histogram, or {@code null} when nothing has been recorded
+     */
+    public Histogram getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * Returns every histogram, the histograms keep recording
+     *
+     * @return Histograms by name
+     */
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    /**
+     * The {@code Histogram} class records non-negative values in buckets of 8 per power of two,
+     * so percentiles are accurate to about 12 percent using a fixed amount of memory.
+     */
+    public static class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS) * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            min.accumulateAndGet(value, Math::min);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+        }
+
+        private static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMin() {
+            return getCount() == 0 ? 0 : min.get();
+        }
+
+        public long getMax() {
+            return getCount() == 0 ? 0 : max.get();
+        }
+
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getSum() / n;
+        }
+
+        /**
+         * Returns the lower bound of the bucket holding the given percentile
+         *
+         * @param percentile Percentile between 0 and 100
+         * @return Approximate value at the percentile, zero when nothing has been recorded
+         */
+        public long getPercentile(double percentile) {
+            long n = getCount();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.max(getMin(), Math.min(getMax(), lowerBound(i)));
+            }
+            return getMax();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.seapip.thomas.huffman;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code PooledBufferAllocator} class keeps released arrays in pools by size, arrays are allocated with a
+ * length rounded up to a power of two so they can be reused for any length of the same size class. Released arrays
+ * are dropped once the pools hold the maximum amount of bytes. A pooled allocator can be shared between threads.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class PooledBufferAllocator implements BufferAllocator {
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    //Smaller arrays are rounded up to this size, larger ones than the largest class aren't pooled
+    private static final int MIN_CLASS = 12;
+    private static final int MAX_CLASS = 30;
+
+    private final long maxBytes;
+    private final List<Deque<byte[]>> pools;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PooledBufferAllocator() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates an allocator keeping released arrays up to a maximum amount of bytes
+     *
+     * @param maxBytes Maximum amount of bytes held by released arrays
+     */
+    public PooledBufferAllocator(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("Max bytes can't be negative");
+        this.maxBytes = maxBytes;
+        this.pools = new ArrayList<>(MAX_CLASS - MIN_CLASS + 1);
+        for (int i = MIN_CLASS; i <= MAX_CLASS; i++) pools.add(new ConcurrentLinkedDeque<>());
+    }
+
+    @Override
+    public byte[] allocate(int length) {
+        byte[] buffer = poll(length);
+        if (buffer == null) {
+            misses.increment();
+            return create(length);
+        }
+        hits.increment();
+        return buffer;
+    }
+
+    @Override
+    public void release(byte[] buffer) {
+        offer(buffer);
+    }
+
+    /**
+     * Takes a released array of at least the given length from the pools without allocating one
+     *
+     * @param length Minimum length of the array
+     * @return The array, or {@code null} when no array of it's size class has been released
+     */
+    byte[] poll(int length) {
+        if (length < 0) throw new IllegalArgumentException("Length can't be negative");
+        int sizeClass = sizeClass(length);
+        if (sizeClass > MAX_CLASS) return null;
+
+        //The most recently released array is the most likely to be cached
+        byte[] buffer = pools.get(sizeClass - MIN_CLASS).pollFirst();
+        if (buffer != null) pooledBytes.addAndGet(-buffer.length);
+        return buffer;
+    }
+
+    /**
+     * Keeps a released array unless it isn't of a size class or the pools are full
+     *
+     * @param buffer The array, or {@code null}
+     * @return Whether the array has been kept
+     */
+    boolean offer(byte[] buffer) {
+        //Only arrays of a size class are pooled
+        if (buffer == null || Integer.bitCount(buffer.length) != 1) return false;
+        int sizeClass = Integer.numberOfTrailingZeros(buffer.length);
+        if (sizeClass < MIN_CLASS || sizeClass > MAX_CLASS) return false;
+        if (pooledBytes.addAndGet(buffer.length) > maxBytes) {
+            pooledBytes.addAndGet(-buffer.length);
+            return false;
+        }
+        pools.get(sizeClass - MIN_CLASS).offerFirst(buffer);
+        return true;
+    }
+
+    /**
+     * Allocates a new array with the length of the size class of the given length, so it can be pooled once
+     * it's released, lengths above the largest class are allocated exactly
+     */
+    static byte[] create(int length) {
+        if (length < 0) throw new IllegalArgumentException("Length can't be negative");
+        int sizeClass = sizeClass(length);
+        return sizeClass > MAX_CLASS ? new byte[length] : new byte[1 << sizeClass];
+    }
+
+    private static int sizeClass(int length) {
+        return length <= 1 << MIN_CLASS ? MIN_CLASS : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * Returns the amount of bytes held by released arrays
+     *
+     * @return Amount of bytes
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Returns the amount of allocations that reused a released array
+     *
+     * @return Amount of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of allocations that allocated a new array
+     *
+     * @return Amount of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package com.seapip.thomas.huffman;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code ThreadLocalBufferAllocator} class keeps a {@link PooledBufferAllocator} per thread, arrays are
+ * allocated from and released to the pool of the calling thread first, so threads rarely wait for each other.
+ * Arrays released once the pool of the releasing thread is full go to a pool shared by all threads, which threads
+ * allocate from when their own pool is empty. Arrays allocated by one thread and released by another, like block
+ * bodies encoded by the workers of a multithreaded compression and released by the writing thread, end up in the
+ * shared pool and are still reused.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class ThreadLocalBufferAllocator implements BufferAllocator {
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    private final ThreadLocal<PooledBufferAllocator> allocators;
+    private final PooledBufferAllocator shared;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ThreadLocalBufferAllocator() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates an allocator keeping released arrays up to a maximum amount of bytes per thread and
+     * in the shared pool
+     *
+     * @param maxBytes Maximum amount of bytes held by released arrays of every thread and of the shared pool
+     */
+    public ThreadLocalBufferAllocator(long maxBytes) {
+        this(maxBytes, maxBytes);
+    }
+
+    /**
+     * Creates an allocator keeping released arrays up to a maximum amount of bytes per thread and
+     * another maximum in the shared pool
+     *
+     * @param maxBytes       Maximum amount of bytes held by released arrays of every thread
+     * @param sharedMaxBytes Maximum amount of bytes held by released arrays in the shared pool
+     */
+    public ThreadLocalBufferAllocator(long maxBytes, long sharedMaxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("Max bytes can't be negative");
+        this.allocators = ThreadLocal.withInitial(() -> new PooledBufferAllocator(maxBytes));
+        this.shared = new PooledBufferAllocator(sharedMaxBytes);
+    }
+
+    @Override
+    public byte[] allocate(int length) {
+        byte[] buffer = allocators.get().poll(length);
+        if (buffer == null) buffer = shared.poll(length);
+        if (buffer == null) {
+            misses.increment();
+            return PooledBufferAllocator.create(length);
+        }
+        hits.increment();
+        return buffer;
+    }
+
+    @Override
+    public void release(byte[] buffer) {
+        if (buffer != null && !allocators.get().offer(buffer)) shared.offer(buffer);
+    }
+
+    /**
+     * Returns the amount of bytes held by released arrays in the shared pool
+     *
+     * @return Amount of bytes
+     */
+    public long getSharedPooledBytes() {
+        return shared.getPooledBytes();
+    }
+
+    /**
+     * Returns the amount of allocations of any thread that reused a released array
+     *
+     * @return Amount of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of allocations of any thread that allocated a new array
+     *
+     * @return Amount of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,255 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code BitBuffer} class is a first in first out buffer of bits stored in primitive words, bits are
+ * appended and read up to 64 at a time, least significant bit first like {@link BitWriter} and {@link BitReader}.
+ * Words are held in chunks that double in size up to {@link #MAX_CHUNK_WORDS}, so the buffer grows by adding
+ * a chunk instead of copying the bits it holds, and chunks that have been read are released.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BitBuffer {
+    public static final int MAX_CHUNK_WORDS = 1 << 13;
+
+    private final List<long[]> chunks = new ArrayList<>();
+    private long[] writeChunk;
+    private int writeWord = 0;
+    private int writeBit = 0;
+    private int readChunk = 0;
+    private int readWord = 0;
+    private int readBit = 0;
+    private long size = 0;
+
+    public BitBuffer() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty buffer
+     *
+     * @param capacity Amount of bits the first chunk holds
+     */
+    public BitBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1");
+        writeChunk = new long[Math.min(MAX_CHUNK_WORDS, (capacity + 63) >>> 6)];
+        chunks.add(writeChunk);
+    }
+
+    /**
+     * Returns the amount of bits that have been appended and not read yet
+     *
+     * @return Amount of bits
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends the least significant bits of a value, least significant bit first
+     *
+     * @param bits  The bits to append, bits above the given amount are ignored
+     * @param count Amount of bits to append, between 0 and 64
+     */
+    public void appendBits(long bits, int count) {
+        if (count < 0 || count > 64) throw new IllegalArgumentException("Count must be between 0 and 64");
+        if (count == 0) return;
+        long value = count == 64 ? bits : bits & ((1L << count) - 1);
+        writeChunk[writeWord] |= value << writeBit;
+        int free = 64 - writeBit;
+        if (count < free) {
+            writeBit += count;
+        } else {
+            nextWriteWord();
+            if (count > free) writeChunk[writeWord] = value >>> free;
+            writeBit = count - free;
+        }
+        size += count;
+    }
+
+    /**
+     * Appends bytes, the first byte first and every byte least significant bit first
+     *
+     * @param data   Array holding the bytes
+     * @param offset Offset of the first byte in the array
+     * @param length Amount of bytes to append
+     */
+    public void appendBytes(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            long word = 0;
+            for (int j = 7; j >= 0; j--) word = word << 8 | (data[i + j] & 0xFFL);
+            appendBits(word, 64);
+        }
+        for (; i < end; i++) appendBits(data[i], 8);
+    }
+
+    private void nextWriteWord() {
+        if (++writeWord < writeChunk.length) return;
+        writeChunk = new long[Math.min(MAX_CHUNK_WORDS, writeChunk.length * 2)];
+        chunks.add(writeChunk);
+        writeWord = 0;
+    }
+
+    /**
+     * Returns the next bits without reading them
+     *
+     * @param count Amount of bits, between 0 and 64 and at most {@link #size()}
+     * @return The bits with the first bit as least significant bit
+     * @throws BufferUnderflowException Exception thrown when the buffer holds less bits
+     */
+    public long peekBits(int count) {
+        if (count < 0 || count > 64) throw new IllegalArgumentException("Count must be between 0 and 64");
+        if (count > size) throw new BufferUnderflowException();
+        if (count == 0) return 0;
+        long[] chunk = chunks.get(readChunk);
+        long value = chunk[readWord] >>> readBit;
+        if (readBit + count > 64) {
+            long next = readWord + 1 < chunk.length ? chunk[readWord + 1] : chunks.get(readChunk + 1)[0];
+            value |= next << (64 - readBit);
+        }
+        return count == 64 ? value : value & ((1L << count) - 1);
+    }
+
+    /**
+     * Reads the next bits
+     *
+     * @param count Amount of bits, between 0 and 64 and at most {@link #size()}
+     * @return The bits with the first bit as least significant bit
+     * @throws BufferUnderflowException Exception thrown when the buffer holds less bits
+     */
+    public long readBits(int count) {
+        long value = peekBits(count);
+        skipBits(count);
+        return value;
+    }
+
+    /**
+     * Skips bits without reading them
+     *
+     * @param count Amount of bits, at most {@link #size()}
+     * @throws BufferUnderflowException Exception thrown when the buffer holds less bits
+     */
+    public void skipBits(long count) {
+        if (count < 0) throw new IllegalArgumentException("Count can't be negative");
+        if (count > size) throw new BufferUnderflowException();
+        size -= count;
+        count += readBit;
+        while (count >= 64) {
+            count -= 64;
+            if (++readWord == chunks.get(readChunk).length) {
+                readWord = 0;
+                readChunk++;
+            }
+        }
+        readBit = (int) count;
+
+        //Release chunks that have been read
+        if (readChunk > 0 && readChunk < chunks.size()) {
+            chunks.subList(0, readChunk).clear();
+            readChunk = 0;
+        }
+    }
+
+    /**
+     * Copies all bits into an array without reading them, the last byte is padded with zero bits
+     *
+     * @param data   The array to copy the bits into
+     * @param offset Offset in the array
+     * @return Amount of bytes copied, {@code ceil(size() / 8)}
+     * @throws IndexOutOfBoundsException Exception thrown when the bits don't fit in the array
+     */
+    public int toByteArray(byte[] data, int offset) {
+        int length = byteLength();
+        if (offset < 0 || data.length - offset < length) throw new IndexOutOfBoundsException("Bits don't fit in the array");
+        copy(ByteBuffer.wrap(data, offset, length));
+        return length;
+    }
+
+    /**
+     * Copies all bits into a buffer at it's position without reading them, the last byte is padded with zero bits
+     *
+     * @param buffer The buffer to copy the bits into, it's position is moved past the copied bytes
+     * @return Amount of bytes copied, {@code ceil(size() / 8)}
+     * @throws BufferOverflowException Exception thrown when the bits don't fit in the buffer
+     */
+    public int toByteBuffer(ByteBuffer buffer) {
+        int length = byteLength();
+        if (buffer.remaining() < length) throw new BufferOverflowException();
+        ByteBuffer target = buffer.duplicate();
+        target.limit(target.position() + length);
+        copy(target);
+        buffer.position(buffer.position() + length);
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        byte[] data = new byte[byteLength()];
+        toByteArray(data, 0);
+        return data;
+    }
+
+    private int byteLength() {
+        if (size > (long) (Integer.MAX_VALUE - 8) << 3) throw new IllegalStateException("Buffer is too large to copy");
+        return (int) ((size + 7) >>> 3);
+    }
+
+    private void copy(ByteBuffer target) {
+        target.order(ByteOrder.LITTLE_ENDIAN);
+        int chunk = readChunk;
+        int word = readWord;
+        long remaining = size;
+        while (remaining > 0) {
+            long[] words = chunks.get(chunk);
+            long value = words[word] >>> readBit;
+            if (readBit > 0 && remaining > 64 - readBit) {
+                long next = word + 1 < words.length ? words[word + 1] : chunks.get(chunk + 1)[0];
+                value |= next << (64 - readBit);
+            }
+            if (remaining >= 64) {
+                target.putLong(value);
+                remaining -= 64;
+            } else {
+                for (; remaining > 0; remaining -= 8) {
+                    target.put((byte) value);
+                    value >>>= 8;
+                }
+            }
+            if (++word == words.length) {
+                word = 0;
+                chunk++;
+            }
+        }
+    }
+
+    /**
+     * Removes all bits, keeping the first chunk
+     */
+    public void clear() {
+        long[] first = chunks.get(0);
+        Arrays.fill(first, 0);
+        chunks.clear();
+        chunks.add(first);
+        writeChunk = first;
+        writeWord = 0;
+        writeBit = 0;
+        readChunk = 0;
+        readWord = 0;
+        readBit = 0;
+        size = 0;
+    }
+}
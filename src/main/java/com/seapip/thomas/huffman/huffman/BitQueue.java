@@ -62,7 +62,7 @@ public class BitQueue implements Queue<Boolean> {
 
     @Override
     public int size() {
-        return endOffset - startOffset + 1;
+        return endOffset - startOffset;
     }
 
     @Override
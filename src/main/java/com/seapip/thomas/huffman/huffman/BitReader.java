@@ -0,0 +1,110 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The {@code BitReader} class reads a fixed amount of bits, least significant bit first, from a byte array
+ * or from an input stream through a bulk buffer. Up to 64 bits are held in an accumulator so codes
+ * can be peeked at and skipped without going back to the underlying bytes for every bit.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BitReader {
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private long bytesLeft;
+    private long bits = 0;
+    private int count = 0;
+    private long remaining;
+
+    /**
+     * Creates a reader over a byte array
+     *
+     * @param data   The data to read
+     * @param offset Offset of the first bit in the data
+     * @param size   Amount of bits to read, the data must hold at least this amount of bits
+     */
+    public BitReader(byte[] data, int offset, long size) {
+        if (size < 0 || size > (long) (data.length - offset) << 3) throw new IllegalArgumentException("Size exceeds data");
+        this.inputStream = null;
+        this.buffer = data;
+        this.position = offset;
+        this.limit = offset + (int) ((size + 7) >>> 3);
+        this.bytesLeft = 0;
+        this.remaining = size;
+    }
+
+    /**
+     * Creates a reader over an input stream, exactly enough bytes are read from the stream to hold the bits
+     *
+     * @param inputStream The stream to read
+     * @param size        Amount of bits to read
+     */
+    public BitReader(InputStream inputStream, long size) {
+        this.inputStream = inputStream;
+        this.bytesLeft = (size + 7) >>> 3;
+        this.buffer = new byte[(int) Math.max(1, Math.min(65536, bytesLeft))];
+        this.position = 0;
+        this.limit = 0;
+        this.remaining = size;
+    }
+
+    /**
+     * Returns the amount of bits that haven't been skipped yet
+     *
+     * @return Remaining amount of bits
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    /**
+     * Fills the accumulator so at least 32 bits can be peeked at, unless there are less bits remaining
+     *
+     * @throws IOException Exception thrown when the input stream ends before all bits were read
+     */
+    public void fill() throws IOException {
+        while (count <= 56) {
+            if (position == limit && !refill()) return;
+            bits |= (buffer[position++] & 0xFFL) << count;
+            count += 8;
+        }
+    }
+
+    private boolean refill() throws IOException {
+        if (bytesLeft == 0) return false;
+        int nRead = inputStream.read(buffer, 0, (int) Math.min(buffer.length, bytesLeft));
+        if (nRead == -1) throw new EOFException("Unexpected end of data");
+        position = 0;
+        limit = nRead;
+        bytesLeft -= nRead;
+        return true;
+    }
+
+    /**
+     * Returns the next bits without skipping them, bits past the end are zero
+     *
+     * @param n Amount of bits, at most 32 and {@link #fill()} must have been called before
+     * @return The bits with the first bit as least significant bit
+     */
+    public int peek(int n) {
+        return (int) (bits & ((1L << n) - 1));
+    }
+
+    /**
+     * Skips bits that have been peeked at
+     *
+     * @param n Amount of bits, at most the amount of bits peeked at
+     */
+    public void skip(int n) {
+        bits >>>= n;
+        count -= n;
+        remaining -= n;
+    }
+}
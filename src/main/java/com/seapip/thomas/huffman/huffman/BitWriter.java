@@ -0,0 +1,116 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@code BitWriter} class writes bits to an output stream through a fixed size buffer, or straight
+ * into a byte array. Bits are collected in a 64 bit accumulator and written a whole word at a time.
+ * Bits are packed least significant bit first, the same order {@link BitBuffer} uses,
+ * so the output can be read by the regular decoder.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BitWriter {
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int position;
+    private long bits = 0;
+    private int count = 0;
+
+    public BitWriter(OutputStream outputStream) {
+        this(outputStream, 8192);
+    }
+
+    public BitWriter(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(8, bufferSize)];
+        this.position = 0;
+    }
+
+    /**
+     * Creates a writer that writes into a byte array, the array must be large enough to hold all bits
+     *
+     * @param buffer The array to write into
+     * @param offset Offset of the first bit in the array
+     */
+    public BitWriter(byte[] buffer, int offset) {
+        this.outputStream = null;
+        this.buffer = buffer;
+        this.position = offset;
+    }
+
+    public void write(boolean bit) throws IOException {
+        write(bit ? 1 : 0, 1);
+    }
+
+    public void write(boolean[] bits) throws IOException {
+        for (boolean bit : bits) write(bit);
+    }
+
+    /**
+     * Writes the least significant bits of a value, least significant bit first
+     *
+     * @param value The bits to write, bits above the given amount must be zero
+     * @param n     Amount of bits to write, at most 64
+     * @throws IOException Exception thrown when the output stream can't be written
+     */
+    public void write(long value, int n) throws IOException {
+        bits |= value << count;
+        count += n;
+        if (count >= 64) {
+            writeWord(bits);
+            count -= 64;
+            bits = count == 0 ? 0 : value >>> (n - count);
+        }
+    }
+
+    private void writeWord(long word) throws IOException {
+        if (buffer.length - position < 8) drain();
+        buffer[position] = (byte) word;
+        buffer[position + 1] = (byte) (word >>> 8);
+        buffer[position + 2] = (byte) (word >>> 16);
+        buffer[position + 3] = (byte) (word >>> 24);
+        buffer[position + 4] = (byte) (word >>> 32);
+        buffer[position + 5] = (byte) (word >>> 40);
+        buffer[position + 6] = (byte) (word >>> 48);
+        buffer[position + 7] = (byte) (word >>> 56);
+        position += 8;
+    }
+
+    /**
+     * Returns the position in the byte array after the last written byte, only valid after a flush
+     *
+     * @return Position in the byte array
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Writes all buffered bits to the output stream, padding the last byte with zero bits.
+     *
+     * @throws IOException Exception thrown when the output stream can't be written
+     */
+    public void flush() throws IOException {
+        for (; count > 0; count -= 8) {
+            if (position == buffer.length) drain();
+            buffer[position++] = (byte) bits;
+            bits >>>= 8;
+        }
+        count = 0;
+        bits = 0;
+        if (outputStream != null) {
+            drain();
+            outputStream.flush();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (outputStream == null) throw new IOException("Buffer overflow");
+        outputStream.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The {@code ByteHistogram} class counts the frequency of every byte value. Consecutive bytes are counted in
+ * {@link #TABLES} separate tables that are summed at the end, so runs of the same byte don't make every increment
+ * wait for the one before it to be stored. Large arrays can be split over a fork join pool, every task counts
+ * it's own part and the parts are merged.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class ByteHistogram {
+    public static final int TABLES = 4;
+    public static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    private static final int SMALL = 1 << 12;
+
+    private ByteHistogram() {
+    }
+
+    /**
+     * Returns the frequency of every byte of an array
+     *
+     * @param data The data to count
+     * @return Frequencies indexed by unsigned byte value
+     */
+    public static long[] count(byte[] data) {
+        long[] frequencies = new long[256];
+        count(data, 0, data.length, frequencies);
+        return frequencies;
+    }
+
+    /**
+     * Adds the frequency of every byte of an array to a histogram
+     *
+     * @param data        The data to count
+     * @param offset      Offset in the data
+     * @param length      Amount of bytes to count
+     * @param frequencies Frequencies indexed by unsigned byte value to add to
+     */
+    public static void count(byte[] data, int offset, int length, long[] frequencies) {
+        int end = offset + length;
+
+        //Small arrays aren't worth clearing the tables for
+        if (length < SMALL) {
+            for (int i = offset; i < end; i++) frequencies[data[i] & 0xFF]++;
+            return;
+        }
+        int[] counts = new int[TABLES * 256];
+        int i = offset;
+        for (; i + 4 <= end; i += 4) {
+            counts[data[i] & 0xFF]++;
+            counts[256 + (data[i + 1] & 0xFF)]++;
+            counts[512 + (data[i + 2] & 0xFF)]++;
+            counts[768 + (data[i + 3] & 0xFF)]++;
+        }
+        for (; i < end; i++) counts[data[i] & 0xFF]++;
+        merge(counts, frequencies);
+    }
+
+    /**
+     * Adds the frequency of every byte of a buffer to a histogram, direct buffers are read four bytes at a time
+     *
+     * @param data        The data to count, from it's position to it's limit, which isn't changed
+     * @param frequencies Frequencies indexed by unsigned byte value to add to
+     */
+    public static void count(ByteBuffer data, long[] frequencies) {
+        if (data.hasArray()) {
+            count(data.array(), data.arrayOffset() + data.position(), data.remaining(), frequencies);
+            return;
+        }
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int[] counts = new int[TABLES * 256];
+        int end = buffer.limit();
+        int i = buffer.position();
+        for (; i + 4 <= end; i += 4) {
+            int word = buffer.getInt(i);
+            counts[word & 0xFF]++;
+            counts[256 + (word >>> 8 & 0xFF)]++;
+            counts[512 + (word >>> 16 & 0xFF)]++;
+            counts[768 + (word >>> 24)]++;
+        }
+        for (; i < end; i++) counts[buffer.get(i) & 0xFF]++;
+        merge(counts, frequencies);
+    }
+
+    private static void merge(int[] counts, long[] frequencies) {
+        for (int b = 0; b < 256; b++) {
+            frequencies[b] += (long) counts[b] + counts[256 + b] + counts[512 + b] + counts[768 + b];
+        }
+    }
+
+    /**
+     * Returns the frequency of every byte of an array, counted by the common fork join pool
+     *
+     * @param data   The data to count
+     * @param offset Offset in the data
+     * @param length Amount of bytes to count
+     * @return Frequencies indexed by unsigned byte value
+     */
+    public static long[] countParallel(byte[] data, int offset, int length) {
+        return countParallel(data, offset, length, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the frequency of every byte of an array, parts of {@link #PARALLEL_THRESHOLD} bytes or more are
+     * counted by separate tasks of the given pool
+     *
+     * @param data   The data to count
+     * @param offset Offset in the data
+     * @param length Amount of bytes to count
+     * @param pool   The pool to count with
+     * @return Frequencies indexed by unsigned byte value
+     */
+    public static long[] countParallel(byte[] data, int offset, int length, ForkJoinPool pool) {
+        if (offset < 0 || length < 0 || data.length - offset < length) throw new IndexOutOfBoundsException();
+        if (length < 2 * PARALLEL_THRESHOLD) {
+            long[] frequencies = new long[256];
+            count(data, offset, length, frequencies);
+            return frequencies;
+        }
+        return pool.invoke(new CountTask(data, offset, length));
+    }
+
+    /**
+     * Returns the Shannon entropy of a histogram, the least amount of bits per byte any order-0 code can reach
+     *
+     * @param frequencies Frequencies indexed by unsigned byte value
+     * @return Entropy in bits per byte, zero for an empty histogram
+     */
+    public static double entropy(long[] frequencies) {
+        long total = 0;
+        for (long frequency : frequencies) total += frequency;
+        if (total == 0) return 0;
+        double sum = 0;
+        for (long frequency : frequencies) if (frequency > 0) sum += frequency * Math.log(frequency);
+        return (Math.log(total) - sum / total) / Math.log(2);
+    }
+
+    private static class CountTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+
+        CountTask(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (length < 2 * PARALLEL_THRESHOLD) {
+                long[] frequencies = new long[256];
+                count(data, offset, length, frequencies);
+                return frequencies;
+            }
+            int half = length >>> 1;
+            CountTask right = new CountTask(data, offset + half, length - half);
+            right.fork();
+            long[] frequencies = new CountTask(data, offset, half).compute();
+            long[] other = right.join();
+            for (int b = 0; b < 256; b++) frequencies[b] += other[b];
+            return frequencies;
+        }
+    }
+}
@@ -15,19 +15,23 @@ import java.util.Map;
  */
 public class ByteNode implements Node {
     private byte b;
-    private int value;
+    private long value;
 
     public ByteNode(byte b) {
         this.b = b;
     }
 
-    public ByteNode(byte b, int value) {
+    public ByteNode(byte b, long value) {
         this.b = b;
         this.value = value;
     }
 
+    public byte getByte() {
+        return b;
+    }
+
     @Override
-    public int getValue() {
+    public long getValue() {
         return value;
     }
 
@@ -42,6 +46,12 @@ public class ByteNode implements Node {
         map.put(b, bits);
     }
 
+    @Override
+    public void toCodes(long[] codes, int[] lengths, long code, int length) {
+        codes[b & 0xFF] = code;
+        lengths[b & 0xFF] = length;
+    }
+
     @Override
     public String toString() {
         return String.valueOf((int) b);
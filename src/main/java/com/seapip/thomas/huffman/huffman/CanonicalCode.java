@@ -0,0 +1,211 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The {@code CanonicalCode} class derives Huffman codes from nothing but the code length of every byte.
+ * Codes are assigned in order of length and then byte value, so the encoder and decoder only have to share
+ * the code lengths, which are much smaller to store than a tree.
+ * <p>
+ * The code lengths are serialized as:
+ * <pre>
+ * max code length (6 bits) | bitmap flag (1 bit)
+ * symbols: a 32 byte bitmap of the used bytes, or the used byte count - 1 followed by the used bytes
+ * lengths: code length - 1 of every used byte in as many bits as the max code length - 1 needs
+ * </pre>
+ * Codes are stored bit reversed, so they can be written least significant bit first.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class CanonicalCode {
+    public static final int MAX_LENGTH = 32;
+
+    private final int[] lengths;
+    private final int[] codes = new int[256];
+    private final int maxLength;
+
+    /**
+     * Creates canonical codes from code lengths
+     *
+     * @param lengths Code length of every byte indexed by unsigned byte value, zero for unused bytes
+     * @throws IllegalArgumentException Exception thrown when the lengths don't form a prefix code
+     */
+    public CanonicalCode(int[] lengths) {
+        if (lengths.length != 256) throw new IllegalArgumentException("Code lengths must be given for 256 bytes");
+        this.lengths = lengths.clone();
+
+        //Count codes of every length
+        int[] counts = new int[MAX_LENGTH + 1];
+        int max = 0;
+        for (int length : lengths) {
+            if (length < 0 || length > MAX_LENGTH) throw new IllegalArgumentException("Invalid code length " + length);
+            counts[length]++;
+            max = Math.max(max, length);
+        }
+        if (max == 0) throw new IllegalArgumentException("No code lengths");
+        maxLength = max;
+
+        //Determine first code of every length
+        long[] next = new long[MAX_LENGTH + 1];
+        long code = 0;
+        counts[0] = 0;
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            code = (code + counts[length - 1]) << 1;
+            next[length] = code;
+            if (code + counts[length] > 1L << length) throw new IllegalArgumentException("Code lengths are over subscribed");
+        }
+
+        //Assign codes in byte order
+        for (int i = 0; i < 256; i++) {
+            if (lengths[i] > 0) codes[i] = reverse(next[lengths[i]]++, lengths[i]);
+        }
+    }
+
+    private static int reverse(long code, int length) {
+        return (int) (Long.reverse(code) >>> (64 - length));
+    }
+
+    /**
+     * Returns the code length of every leaf in a Huffman tree, a tree with a single byte gets a code of one bit
+     *
+     * @param tree The Huffman tree
+     * @return Code lengths indexed by unsigned byte value
+     */
+    public static int[] lengths(TreeNode tree) {
+        return new CodeTable(tree).getLengths();
+    }
+
+    public int[] getLengths() {
+        return lengths.clone();
+    }
+
+    public int getLength(int b) {
+        return lengths[b];
+    }
+
+    /**
+     * Returns the bit reversed code of a byte
+     *
+     * @param b Unsigned byte value
+     * @return The code, to be written least significant bit first
+     */
+    public int getCode(int b) {
+        return codes[b];
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        int count = 0;
+        for (int length : lengths) if (length > 0) count++;
+        boolean bitmap = count > 31;
+        outputStream.write(maxLength | (bitmap ? 0x80 : 0));
+
+        //Write used bytes
+        if (bitmap) {
+            byte[] data = new byte[32];
+            for (int i = 0; i < 256; i++) if (lengths[i] > 0) data[i >>> 3] |= 1 << (i & 7);
+            outputStream.write(data);
+        } else {
+            outputStream.write(count - 1);
+            for (int i = 0; i < 256; i++) if (lengths[i] > 0) outputStream.write(i);
+        }
+
+        //Write code lengths
+        int bits = bits(maxLength);
+        BitWriter bitWriter = new BitWriter(outputStream, 128);
+        for (int length : lengths) if (length > 0) bitWriter.write(length - 1L, bits);
+        bitWriter.flush();
+    }
+
+    /**
+     * Returns the length of serialized code lengths without reading them
+     *
+     * @param data   Array holding the serialized code lengths
+     * @param offset Offset of the code lengths in the array
+     * @param limit  End of the data in the array
+     * @return Length of the serialized code lengths in bytes
+     * @throws IOException Exception thrown when the data ends before the code lengths do
+     */
+    public static int headerLength(byte[] data, int offset, int limit) throws IOException {
+        if (limit - offset < 2) throw new IOException("Unexpected end of data");
+        int header = data[offset] & 0xFF;
+        int maxLength = header & 0x3F;
+        if (maxLength < 1 || maxLength > MAX_LENGTH) throw new IOException("Corrupt code lengths");
+        int length;
+        int count = 0;
+        if ((header & 0x80) != 0) {
+            length = 33;
+            if (limit - offset < length) throw new IOException("Unexpected end of data");
+            for (int i = 1; i < length; i++) count += Integer.bitCount(data[offset + i] & 0xFF);
+        } else {
+            count = (data[offset + 1] & 0xFF) + 1;
+            length = 2 + count;
+        }
+        length += (count * bits(maxLength) + 7) >>> 3;
+        if (limit - offset < length) throw new IOException("Unexpected end of data");
+        return length;
+    }
+
+    public static CanonicalCode read(InputStream inputStream) throws IOException {
+        int header = inputStream.read();
+        if (header == -1) throw new IOException("Unexpected end of data");
+        int maxLength = header & 0x3F;
+        if (maxLength < 1 || maxLength > MAX_LENGTH) throw new IOException("Corrupt code lengths");
+
+        //Read used bytes
+        boolean[] used = new boolean[256];
+        int count = 0;
+        if ((header & 0x80) != 0) {
+            for (int i = 0; i < 32; i++) {
+                int b = readByte(inputStream);
+                for (int j = 0; j < 8; j++) {
+                    if ((b & (1 << j)) != 0) {
+                        used[i << 3 | j] = true;
+                        count++;
+                    }
+                }
+            }
+        } else {
+            count = readByte(inputStream) + 1;
+            for (int i = 0; i < count; i++) {
+                int b = readByte(inputStream);
+                if (used[b]) throw new IOException("Corrupt code lengths");
+                used[b] = true;
+            }
+        }
+
+        //Read code lengths
+        int bits = bits(maxLength);
+        BitReader bitReader = new BitReader(inputStream, (long) count * bits);
+        int[] lengths = new int[256];
+        for (int i = 0; i < 256; i++) {
+            if (!used[i]) continue;
+            bitReader.fill();
+            lengths[i] = bitReader.peek(bits) + 1;
+            bitReader.skip(bits);
+            if (lengths[i] > maxLength) throw new IOException("Corrupt code lengths");
+        }
+        try {
+            return new CanonicalCode(lengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt code lengths");
+        }
+    }
+
+    private static int readByte(InputStream inputStream) throws IOException {
+        int b = inputStream.read();
+        if (b == -1) throw new IOException("Unexpected end of data");
+        return b;
+    }
+
+    private static int bits(int maxLength) {
+        return 32 - Integer.numberOfLeadingZeros(maxLength - 1);
+    }
+}
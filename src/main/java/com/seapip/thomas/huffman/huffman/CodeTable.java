@@ -0,0 +1,138 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code CodeTable} class holds the code and code length of every byte in primitive arrays,
+ * so data can be encoded without boxing or allocating anything per byte.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class CodeTable {
+    private final long[] codes = new long[256];
+    private final int[] lengths = new int[256];
+
+    public CodeTable(TreeNode tree) {
+        tree.toCodes(codes, lengths, 0, 0);
+    }
+
+    public CodeTable(CanonicalCode code) {
+        for (int i = 0; i < 256; i++) {
+            codes[i] = code.getCode(i) & 0xFFFFFFFFL;
+            lengths[i] = code.getLength(i);
+        }
+    }
+
+    public int[] getLengths() {
+        return lengths.clone();
+    }
+
+    /**
+     * Returns the size of the encoded data in bits
+     *
+     * @param frequencies Frequency of every byte indexed by unsigned byte value
+     * @return Size in bits
+     */
+    public long size(long[] frequencies) {
+        long size = 0;
+        for (int i = 0; i < 256; i++) size += frequencies[i] * lengths[i];
+        return size;
+    }
+
+    /**
+     * Returns the size of the encoded data in bits
+     *
+     * @param data   The data to encode
+     * @param offset Offset in the data
+     * @param length Amount of bytes to encode
+     * @return Size in bits
+     */
+    public long size(byte[] data, int offset, int length) {
+        long size = 0;
+        for (int i = offset, end = offset + length; i < end; i++) size += lengths[data[i] & 0xFF];
+        return size;
+    }
+
+    /**
+     * Encodes data, every byte of the data must have a code
+     *
+     * @param data   The data to encode
+     * @param offset Offset in the data
+     * @param length Amount of bytes to encode
+     * @param writer The writer to write the codes to
+     * @throws IOException Exception thrown when the writer can't be written
+     */
+    public void encode(byte[] data, int offset, int length, BitWriter writer) throws IOException {
+        long[] c = codes;
+        int[] l = lengths;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = data[i] & 0xFF;
+            writer.write(c[b], l[b]);
+        }
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer without changing it's position, every byte must have a code
+     *
+     * @param data   The data to encode, for example a mapped file
+     * @param writer The writer to write the codes to
+     * @throws IOException Exception thrown when the writer can't be written
+     */
+    public void encode(ByteBuffer data, BitWriter writer) throws IOException {
+        if (data.hasArray()) {
+            encode(data.array(), data.arrayOffset() + data.position(), data.remaining(), writer);
+            return;
+        }
+        long[] c = codes;
+        int[] l = lengths;
+        for (int i = data.position(), end = data.limit(); i < end; i++) {
+            int b = data.get(i) & 0xFF;
+            writer.write(c[b], l[b]);
+        }
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer without changing it's position, every byte is encoded with the
+     * code of it's context, which is the byte before it, or zero for the first byte
+     *
+     * @param contexts The code of every context indexed by unsigned byte value
+     * @param data     The data to encode
+     * @param writer   The writer to write the codes to
+     * @throws IOException Exception thrown when the writer can't be written
+     */
+    public static void encode(CodeTable[] contexts, ByteBuffer data, BitWriter writer) throws IOException {
+        int previous = 0;
+        if (data.hasArray()) {
+            byte[] array = data.array();
+            for (int i = data.arrayOffset() + data.position(), end = i + data.remaining(); i < end; i++) {
+                int b = array[i] & 0xFF;
+                CodeTable table = contexts[previous];
+                writer.write(table.codes[b], table.lengths[b]);
+                previous = b;
+            }
+            return;
+        }
+        for (int i = data.position(), end = data.limit(); i < end; i++) {
+            int b = data.get(i) & 0xFF;
+            CodeTable table = contexts[previous];
+            writer.write(table.codes[b], table.lengths[b]);
+            previous = b;
+        }
+    }
+
+    /**
+     * Returns whether every byte of the data has a code
+     *
+     * @param data   The data to check
+     * @param offset Offset in the data
+     * @param length Amount of bytes to check
+     * @return Whether the data can be encoded
+     */
+    public boolean canEncode(byte[] data, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) if (lengths[data[i] & 0xFF] == 0) return false;
+        return true;
+    }
+}
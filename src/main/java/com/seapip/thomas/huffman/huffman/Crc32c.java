@@ -0,0 +1,150 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * The {@code Crc32c} class computes CRC-32C (Castagnoli) checksums. Runtimes that have
+ * {@code java.util.zip.CRC32C}, which is an intrinsic on most processors, use it through {@link #create()},
+ * older runtimes use this class, which processes 8 bytes at a time with lookup tables. Both compute the same
+ * checksum, so data checked on one runtime can be checked on any other.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class Crc32c implements Checksum {
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[][] TABLES = new int[8][256];
+    private static final MethodHandle CONSTRUCTOR;
+    private static final MethodHandle UPDATE;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) crc = (crc >>> 1) ^ (POLYNOMIAL & -(crc & 1));
+            TABLES[0][i] = crc;
+        }
+        for (int t = 1; t < 8; t++) {
+            for (int i = 0; i < 256; i++) TABLES[t][i] = (TABLES[t - 1][i] >>> 8) ^ TABLES[0][TABLES[t - 1][i] & 0xFF];
+        }
+
+        //Look up the runtime implementation, it's missing before Java 9
+        MethodHandle constructor = null;
+        MethodHandle update = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> type = Class.forName("java.util.zip.CRC32C");
+            constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Checksum.class));
+            update = lookup.findVirtual(Checksum.class, "update", MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            constructor = null;
+        }
+        CONSTRUCTOR = constructor;
+        UPDATE = constructor == null ? null : update;
+    }
+
+    private int crc = ~0;
+
+    /**
+     * Returns a new checksum, the runtime implementation when there is one
+     *
+     * @return CRC-32C checksum
+     */
+    public static Checksum create() {
+        if (CONSTRUCTOR != null) {
+            try {
+                return (Checksum) CONSTRUCTOR.invokeExact();
+            } catch (Throwable e) { //NOSONAR
+                //Fall back to the table implementation
+            }
+        }
+        return new Crc32c();
+    }
+
+    /**
+     * Returns the checksum of an array
+     *
+     * @param data   Array holding the data
+     * @param offset Offset of the data in the array
+     * @param length Length of the data
+     * @return CRC-32C checksum
+     */
+    public static int checksum(byte[] data, int offset, int length) {
+        Checksum checksum = create();
+        checksum.update(data, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Returns the checksum of a buffer
+     *
+     * @param data The data, from it's position to it's limit, which isn't changed
+     * @return CRC-32C checksum
+     */
+    public static int checksum(ByteBuffer data) {
+        if (data.hasArray()) return checksum(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        Checksum checksum = create();
+        if (UPDATE != null && !(checksum instanceof Crc32c)) {
+            try {
+                UPDATE.invokeExact(checksum, data.duplicate());
+                return (int) checksum.getValue();
+            } catch (Throwable e) { //NOSONAR
+                //Fall back to copying
+                checksum.reset();
+            }
+        }
+
+        //Direct buffers are copied a chunk at a time
+        ByteBuffer buffer = data.duplicate();
+        byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+        return (int) checksum.getValue();
+    }
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || b.length - off < len) throw new IndexOutOfBoundsException();
+        int[] t0 = TABLES[0];
+        int[] t1 = TABLES[1];
+        int[] t2 = TABLES[2];
+        int[] t3 = TABLES[3];
+        int[] t4 = TABLES[4];
+        int[] t5 = TABLES[5];
+        int[] t6 = TABLES[6];
+        int[] t7 = TABLES[7];
+        int value = crc;
+        int end = off + len;
+        int i = off;
+        for (; i + 8 <= end; i += 8) {
+            value ^= (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | b[i + 3] << 24;
+            value = t7[value & 0xFF] ^ t6[(value >>> 8) & 0xFF] ^ t5[(value >>> 16) & 0xFF] ^ t4[value >>> 24]
+                    ^ t3[b[i + 4] & 0xFF] ^ t2[b[i + 5] & 0xFF] ^ t1[b[i + 6] & 0xFF] ^ t0[b[i + 7] & 0xFF];
+        }
+        for (; i < end; i++) value = (value >>> 8) ^ t0[(value ^ b[i]) & 0xFF];
+        crc = value;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = ~0;
+    }
+}
@@ -0,0 +1,257 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The {@code DecodeTable} class decodes Huffman codes with table lookups instead of walking the tree
+ * one bit at a time. The root table resolves up to {@link #ROOT_BITS} bits with a single lookup, longer
+ * codes continue in sub tables of up to {@link #SUB_BITS} bits. Canonical codes limited to {@link #SINGLE_BITS}
+ * bits are decoded from a single table.
+ * <p>
+ * Every entry is an int, a zero entry marks a code that isn't part of the tree:
+ * <pre>
+ * leaf: symbol &lt;&lt; 8 | code length
+ * link: sub table offset &lt;&lt; 8 | LINK | sub table bits
+ * </pre>
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class DecodeTable {
+    public static final int ROOT_BITS = 11;
+    public static final int SUB_BITS = 8;
+    public static final int SINGLE_BITS = 12;
+
+    private static final int LINK = 0x20;
+    private static final int LENGTH = 0x1F;
+
+    private int[] table = new int[1 << 8];
+    private int size = 0;
+    private final int rootBits;
+    private final int[] lengths;
+
+    public DecodeTable(TreeNode tree) {
+        lengths = CanonicalCode.lengths(tree);
+        rootBits = Math.max(1, Math.min(ROOT_BITS, depth(tree)));
+        build(tree, rootBits);
+        table = Arrays.copyOf(table, size);
+    }
+
+    public DecodeTable(CanonicalCode code) {
+        lengths = code.getLengths();
+        rootBits = code.getMaxLength() <= SINGLE_BITS ? code.getMaxLength() : ROOT_BITS;
+        int[] symbols = new int[256];
+        int count = 0;
+        for (int i = 0; i < 256; i++) if (code.getLength(i) > 0) symbols[count++] = i;
+        build(code, Arrays.copyOf(symbols, count), 0, rootBits);
+        table = Arrays.copyOf(table, size);
+    }
+
+    /**
+     * Returns the code lengths of the code this table decodes
+     *
+     * @return Code lengths indexed by unsigned byte value
+     */
+    public int[] getLengths() {
+        return lengths.clone();
+    }
+
+    public int getMaxLength() {
+        int max = 0;
+        for (int length : lengths) max = Math.max(max, length);
+        return max;
+    }
+
+    /**
+     * Returns the approximate amount of memory used by this table
+     *
+     * @return Size in bytes
+     */
+    public long getWeight() {
+        return 64L + table.length * 4L + lengths.length * 4L;
+    }
+
+    private int build(CanonicalCode code, int[] symbols, int consumed, int bits) {
+        int offset = size;
+        size += 1 << bits;
+        if (size > table.length) table = Arrays.copyOf(table, Math.max(size, table.length * 2));
+
+        //Fill every entry starting with a code that ends in this table, group longer codes by prefix
+        int[][] groups = new int[1 << bits][];
+        int[] groupSizes = new int[1 << bits];
+        for (int symbol : symbols) {
+            int length = code.getLength(symbol) - consumed;
+            int prefix = code.getCode(symbol) >>> consumed;
+            if (length <= bits) {
+                int entry = symbol << 8 | length;
+                for (int i = prefix & ((1 << length) - 1); i < 1 << bits; i += 1 << length) table[offset + i] = entry;
+            } else {
+                prefix &= (1 << bits) - 1;
+                if (groups[prefix] == null) groups[prefix] = new int[symbols.length];
+                groups[prefix][groupSizes[prefix]++] = symbol;
+            }
+        }
+
+        //Link sub tables for longer codes
+        for (int prefix = 0; prefix < groups.length; prefix++) {
+            if (groups[prefix] == null) continue;
+            int[] group = Arrays.copyOf(groups[prefix], groupSizes[prefix]);
+            int max = 0;
+            for (int symbol : group) max = Math.max(max, code.getLength(symbol) - consumed - bits);
+            int subBits = Math.min(SUB_BITS, max);
+            int entry = build(code, group, consumed + bits, subBits) << 8 | LINK | subBits;
+            table[offset + prefix] = entry;
+        }
+        return offset;
+    }
+
+    private int build(TreeNode start, int bits) {
+        int offset = size;
+        size += 1 << bits;
+        if (size > table.length) table = Arrays.copyOf(table, Math.max(size, table.length * 2));
+
+        //Walk the tree for every bit pattern of this table
+        for (int pattern = 0; pattern < 1 << bits; pattern++) {
+            Node node = start;
+            int entry = 0;
+            for (int i = 0; i < bits; i++) {
+                node = child(node, (pattern & (1 << i)) != 0);
+                if (node == null) break;
+                if (node instanceof ByteNode) {
+                    entry = (((ByteNode) node).getByte() & 0xFF) << 8 | (i + 1);
+                    break;
+                }
+            }
+            if (node instanceof TreeNode) {
+                int subBits = Math.min(SUB_BITS, depth(node));
+                entry = build((TreeNode) node, subBits) << 8 | LINK | subBits;
+            }
+            table[offset + pattern] = entry;
+        }
+        return offset;
+    }
+
+    private static Node child(Node node, boolean bit) {
+        return bit ? ((TreeNode) node).getRightNode() : ((TreeNode) node).getLeftNode();
+    }
+
+    private static int depth(Node node) {
+        if (!(node instanceof TreeNode)) return 0;
+        TreeNode tree = (TreeNode) node;
+        return 1 + Math.max(depth(tree.getLeftNode()), depth(tree.getRightNode()));
+    }
+
+    /**
+     * Decodes symbols until the output is full or all bits of the reader have been read
+     *
+     * @param reader The reader to read codes from
+     * @param output Array to write the decoded bytes into
+     * @param offset Offset in the output array
+     * @param length Maximum amount of bytes to decode
+     * @return Amount of decoded bytes
+     * @throws IOException Exception thrown when the data can't be read or contains an invalid code
+     */
+    public int decode(BitReader reader, byte[] output, int offset, int length) throws IOException {
+        int[] entries = table;
+        int end = offset + length;
+        int i = offset;
+        while (i < end && reader.remaining() > 0) output[i++] = (byte) next(reader, entries, rootBits);
+        return i - offset;
+    }
+
+    /**
+     * Decodes four sub-streams side by side, every loop decodes a symbol of each stream, so their independent
+     * lookups overlap instead of waiting for each other. Stream {@code i} holds the bytes starting at
+     * {@code offset + i * segment}, the last stream holds the bytes left.
+     *
+     * @param readers The readers of the four streams
+     * @param output  Array to write the decoded bytes into
+     * @param offset  Offset in the output array
+     * @param segment Amount of bytes of every stream but the last
+     * @param length  Total amount of bytes to decode
+     * @return Amount of decoded bytes
+     * @throws IOException Exception thrown when a stream ends early or contains an invalid code
+     */
+    public int decode(BitReader[] readers, byte[] output, int offset, int segment, int length) throws IOException {
+        if (readers.length != 4 || segment < 0 || (long) segment * 3 > length) throw new IllegalArgumentException("Invalid segments");
+        int[] entries = table;
+        BitReader r0 = readers[0];
+        BitReader r1 = readers[1];
+        BitReader r2 = readers[2];
+        BitReader r3 = readers[3];
+        int o1 = offset + segment;
+        int o2 = o1 + segment;
+        int o3 = o2 + segment;
+
+        //Decode side by side while every stream has bytes left
+        int last = length - segment * 3;
+        int common = Math.min(segment, last);
+        for (int i = 0; i < common; i++) {
+            output[offset + i] = (byte) next(r0, entries, rootBits);
+            output[o1 + i] = (byte) next(r1, entries, rootBits);
+            output[o2 + i] = (byte) next(r2, entries, rootBits);
+            output[o3 + i] = (byte) next(r3, entries, rootBits);
+        }
+
+        //Decode the rest of each stream
+        int decoded = common * 4;
+        decoded += decode(r0, output, offset + common, segment - common);
+        decoded += decode(r1, output, o1 + common, segment - common);
+        decoded += decode(r2, output, o2 + common, segment - common);
+        decoded += decode(r3, output, o3 + common, last - common);
+        return decoded;
+    }
+
+    /**
+     * Decodes symbols switching tables for every symbol, the table of a symbol is the table of it's context,
+     * which is the symbol before it, or zero for the first symbol
+     *
+     * @param reader   The reader to read codes from
+     * @param contexts The table of every context indexed by unsigned byte value
+     * @param output   Array to write the decoded bytes into
+     * @param offset   Offset in the output array
+     * @param length   Maximum amount of bytes to decode
+     * @return Amount of decoded bytes
+     * @throws IOException Exception thrown when the data can't be read or contains an invalid code
+     */
+    public static int decode(BitReader reader, DecodeTable[] contexts, byte[] output, int offset, int length) throws IOException {
+        int[][] entries = new int[256][];
+        int[] rootBits = new int[256];
+        for (int i = 0; i < 256; i++) {
+            entries[i] = contexts[i].table;
+            rootBits[i] = contexts[i].rootBits;
+        }
+        int end = offset + length;
+        int i = offset;
+        int previous = 0;
+        while (i < end && reader.remaining() > 0) {
+            previous = next(reader, entries[previous], rootBits[previous]);
+            output[i++] = (byte) previous;
+        }
+        return i - offset;
+    }
+
+    /**
+     * Decodes a single symbol
+     *
+     * @return The symbol
+     */
+    private static int next(BitReader reader, int[] entries, int rootBits) throws IOException {
+        reader.fill();
+        int bits = rootBits;
+        int entry = entries[reader.peek(bits)];
+        while ((entry & LINK) != 0) {
+            if (reader.remaining() < bits) throw new IOException("Corrupt data");
+            reader.skip(bits);
+            reader.fill();
+            bits = entry & LENGTH;
+            entry = entries[(entry >>> 8) + reader.peek(bits)];
+        }
+        int codeLength = entry & LENGTH;
+        if (codeLength == 0 || reader.remaining() < codeLength) throw new IOException("Corrupt data");
+        reader.skip(codeLength);
+        return entry >>> 8;
+    }
+}
@@ -15,12 +15,14 @@ import java.util.Queue;
  * @since 1.8
  */
 public interface Node {
-    int getValue();
+    long getValue();
 
     void flatten(Collection<Byte> bytes, Collection<Boolean> structure);
 
     void toMap(Map<Byte, Collection<Boolean>> map, Collection<Boolean> bits);
 
+    void toCodes(long[] codes, int[] lengths, long code, int length);
+
     void toString(StringBuilder stringBuilder, StringBuilder prefix, boolean isTail);
 
     void write(OutputStream outputStream) throws IOException;
@@ -0,0 +1,109 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The {@code PackageMerge} class creates optimal code lengths that don't exceed a maximum length
+ * using the package-merge algorithm. Every symbol is a coin of it's frequency at every length,
+ * coins are packaged in pairs and merged with the symbols once for every allowed length, after which
+ * the cheapest {@code 2n - 2} coins determine how often every symbol is used and so it's code length.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class PackageMerge {
+    private PackageMerge() {
+    }
+
+    /**
+     * Returns code lengths for the given frequencies, limited to the given maximum
+     *
+     * @param frequencies Frequency of every byte indexed by unsigned byte value
+     * @param maxLength   Maximum code length, enough to give every used byte a code
+     * @return Code lengths indexed by unsigned byte value
+     */
+    public static int[] lengths(long[] frequencies, int maxLength) {
+        List<Item> leaves = new ArrayList<>();
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] > 0) leaves.add(new Item(i, frequencies[i], null, null));
+        }
+        int[] lengths = new int[frequencies.length];
+        if (leaves.isEmpty()) return lengths;
+        if (leaves.size() == 1) {
+            lengths[leaves.get(0).symbol] = 1;
+            return lengths;
+        }
+        if (maxLength < 32 && leaves.size() > 1L << maxLength) {
+            throw new IllegalArgumentException("Maximum code length is too small for " + leaves.size() + " symbols");
+        }
+        leaves.sort(Comparator.comparingLong(item -> item.weight));
+
+        //Package pairs of coins and merge them with the symbols once for every length
+        List<Item> list = leaves;
+        for (int level = 1; level < maxLength; level++) {
+            List<Item> packages = new ArrayList<>(list.size() / 2);
+            for (int i = 0; i + 1 < list.size(); i += 2) {
+                packages.add(new Item(-1, list.get(i).weight + list.get(i + 1).weight, list.get(i), list.get(i + 1)));
+            }
+            list = merge(leaves, packages);
+        }
+
+        //Every time a symbol is part of the cheapest coins it's code gets one bit longer
+        for (Item item : list.subList(0, 2 * leaves.size() - 2)) item.count(lengths);
+        return lengths;
+    }
+
+    private static List<Item> merge(List<Item> leaves, List<Item> packages) {
+        List<Item> list = new ArrayList<>(leaves.size() + packages.size());
+        int i = 0;
+        int j = 0;
+        while (i < leaves.size() || j < packages.size()) {
+            if (j == packages.size() || (i < leaves.size() && leaves.get(i).weight <= packages.get(j).weight)) {
+                list.add(leaves.get(i++));
+            } else {
+                list.add(packages.get(j++));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns code lengths for the given frequencies, using the Huffman tree lengths unless they exceed the maximum
+     *
+     * @param frequencies Frequency of every byte indexed by unsigned byte value
+     * @param maxLength   Maximum code length
+     * @return Code lengths indexed by unsigned byte value
+     */
+    public static int[] limit(long[] frequencies, int maxLength) {
+        int[] lengths = CanonicalCode.lengths(new TreeNode(frequencies));
+        if (Arrays.stream(lengths).max().orElse(0) <= maxLength) return lengths;
+        return lengths(frequencies, maxLength);
+    }
+
+    private static class Item {
+        private final int symbol;
+        private final long weight;
+        private final Item left;
+        private final Item right;
+
+        Item(int symbol, long weight, Item left, Item right) {
+            this.symbol = symbol;
+            this.weight = weight;
+            this.left = left;
+            this.right = right;
+        }
+
+        void count(int[] lengths) {
+            if (left == null) {
+                lengths[symbol]++;
+            } else {
+                left.count(lengths);
+                right.count(lengths);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.*;
 
@@ -21,22 +22,20 @@ public class TreeNode implements Node {
     private Node rightNode;
 
     public TreeNode(byte[] bytes) {
-        //Create bytes frequency map
-        Map<Byte, Integer> map = new HashMap<>();
-        for (byte b : bytes) map.put(b, map.getOrDefault(b, 0) + 1);
+        this(ByteHistogram.count(bytes));
+    }
 
-        //Create Huffman tree from character frequency map
-        if (map.size() == 1) {
-            leftNode = new ByteNode(bytes[0]);
+    public TreeNode(long[] frequencies) {
+        //Create Huffman tree from byte frequency table, indexed by unsigned byte value
+        Queue<Node> queue = new PriorityQueue<>(frequencies.length, (o1, o2) -> Long.compare(o1.getValue(), o2.getValue()));
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] > 0) queue.add(new ByteNode((byte) i, frequencies[i]));
+        }
+        if (queue.size() == 1) {
+            leftNode = queue.poll();
             return;
         }
-        Queue<Node> queue = new PriorityQueue<>(map.size(), (o1, o2) -> ((Integer) o1.getValue()).compareTo(o2.getValue()));
-        for (Map.Entry entry : map.entrySet()) queue.add(new ByteNode((byte) entry.getKey(), (int) entry.getValue()));
-        while (queue.size() > 1) queue.add(new TreeNode(queue.poll(), queue.poll()));
-
-        //Set child node values of this tree to values from created Huffman tree
-        leftNode = ((TreeNode) queue.peek()).getLeftNode();
-        rightNode = ((TreeNode) queue.peek()).getRightNode();
+        build(queue);
     }
 
     public TreeNode(Node leftNode, Node rightNode) {
@@ -52,6 +51,54 @@ public class TreeNode implements Node {
         }
     }
 
+    private void build(Queue<Node> queue) {
+        while (queue.size() > 1) queue.add(new TreeNode(queue.poll(), queue.poll()));
+
+        //Set child node values of this tree to values from created Huffman tree
+        leftNode = ((TreeNode) queue.peek()).getLeftNode();
+        rightNode = ((TreeNode) queue.peek()).getRightNode();
+    }
+
+    /**
+     * Returns the length of a serialized tree without reading the tree
+     *
+     * @param data   Array holding the serialized tree
+     * @param offset Offset of the tree in the array
+     * @param limit  End of the data in the array
+     * @return Length of the serialized tree in bytes
+     * @throws IOException Exception thrown when the data ends before the tree does
+     */
+    public static int headerLength(byte[] data, int offset, int limit) throws IOException {
+        if (limit - offset < 4) throw new IOException("Unexpected end of data");
+        long count = ByteBuffer.wrap(data, offset, 4).getInt();
+        if (count < 0 || count > 256 || limit - offset < 8 + count) throw new IOException("Corrupt tree");
+        long size = ByteBuffer.wrap(data, offset + 4 + (int) count, 4).getInt();
+        long length = 8 + count + (size + 7) / 8;
+        if (size < 0 || limit - offset < length) throw new IOException("Corrupt tree");
+        return (int) length;
+    }
+
+    /**
+     * Reads the bytes of a serialized tree without reading the tree, see {@link #read(InputStream)}
+     *
+     * @param inputStream The stream to read the tree from
+     * @return The serialized tree
+     * @throws IOException Exception thrown when the stream can't be read or the tree is corrupt
+     */
+    public static byte[] readHeader(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        int count = dataInputStream.readInt();
+        if (count < 0 || count > 256) throw new IOException("Corrupt tree");
+        byte[] header = new byte[8 + count];
+        ByteBuffer.wrap(header).putInt(count);
+        dataInputStream.readFully(header, 4, count + 4);
+        int size = ByteBuffer.wrap(header, 4 + count, 4).getInt();
+        if (size < 0 || size > 4096) throw new IOException("Corrupt tree");
+        header = Arrays.copyOf(header, header.length + (size + 7) / 8);
+        dataInputStream.readFully(header, 8 + count, (size + 7) / 8);
+        return header;
+    }
+
     public static TreeNode read(InputStream inputStream) throws IOException {
         DataInputStream dataInputStream = new DataInputStream(inputStream);
         byte[] data = new byte[4];
@@ -74,12 +121,23 @@ public class TreeNode implements Node {
         byte[] structureBytes = new byte[(int) Math.ceil(size / 8.0)];
         dataInputStream.readFully(structureBytes, 0, structureBytes.length);
 
-        //Convert structure bytes to bits
-        BitQueue structure = new BitQueue();
-        for (byte b : structureBytes) for (int mask = 1; mask != 256; mask <<= 1) structure.add((b & mask) != 0);
-
         //Create Huffman tree from bytes and tree structure
-        return new TreeNode(bytes, structure);
+        BitBuffer structure = new BitBuffer(Math.max(1, size));
+        structure.appendBytes(structureBytes, 0, structureBytes.length);
+        Node node;
+        try {
+            node = unflatten(bytes, structure);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt tree");
+        }
+        if (node == null) return new TreeNode((Node) null, null);
+        if (!(node instanceof TreeNode)) throw new IOException("Corrupt tree");
+        return (TreeNode) node;
+    }
+
+    private static Node unflatten(Queue<Byte> bytes, BitBuffer structure) {
+        if (bytes.isEmpty()) return null;
+        return structure.readBits(1) != 0 ? new ByteNode(bytes.poll()) : new TreeNode(unflatten(bytes, structure), unflatten(bytes, structure));
     }
 
     @Override
@@ -95,7 +153,7 @@ public class TreeNode implements Node {
     }
 
     @Override
-    public int getValue() {
+    public long getValue() {
         return leftNode.getValue() + rightNode.getValue();
     }
 
@@ -109,23 +167,37 @@ public class TreeNode implements Node {
 
     @Override
     public void write(OutputStream outputStream) throws IOException {
-        Queue<Byte> bytes = new ArrayDeque<>();
-        BitQueue structure = new BitQueue();
+        byte[] bytes = new byte[256];
+        BitBuffer structure = new BitBuffer(512);
 
         //Get bytes and tree structure in pre order tree traversal
-        flatten(bytes, structure);
-
-        //Write bytes count
-        outputStream.write(ByteBuffer.allocate(4).putInt(bytes.size()).array());
-
-        //Write bytes
-        for (Byte b : bytes) outputStream.write(b);
-
-        //Write structure size
-        outputStream.write(ByteBuffer.allocate(4).putInt(structure.size()).array());
+        int count = flatten(this, bytes, 0, structure);
+
+        //The structure ends with a set bit
+        structure.appendBits(1, 1);
+        ByteBuffer header = ByteBuffer.allocate(8 + count + (int) ((structure.size() + 7) >>> 3));
+        header.putInt(count);
+        header.put(bytes, 0, count);
+        header.putInt((int) structure.size());
+        structure.toByteBuffer(header);
+        outputStream.write(header.array());
+    }
 
-        //Write tree structure
-        outputStream.write(structure.toByteArray());
+    /**
+     * Writes the bytes and structure of a node in pre order, a set bit for every byte and a clear bit for every tree
+     *
+     * @return Amount of bytes
+     */
+    private static int flatten(Node node, byte[] bytes, int count, BitBuffer structure) {
+        if (node instanceof ByteNode) {
+            structure.appendBits(1, 1);
+            bytes[count++] = ((ByteNode) node).getByte();
+        } else if (node instanceof TreeNode) {
+            structure.appendBits(0, 1);
+            count = flatten(((TreeNode) node).leftNode, bytes, count, structure);
+            count = flatten(((TreeNode) node).rightNode, bytes, count, structure);
+        }
+        return count;
     }
 
     @Override
@@ -134,6 +206,13 @@ public class TreeNode implements Node {
         if (rightNode != null) rightNode.toMap(map, copyAndAdd(bits, true));
     }
 
+    @Override
+    public void toCodes(long[] codes, int[] lengths, long code, int length) {
+        if (length == 64) throw new IllegalStateException("Huffman tree is deeper than 64 bits");
+        if (leftNode != null) leftNode.toCodes(codes, lengths, code, length + 1);
+        if (rightNode != null) rightNode.toCodes(codes, lengths, code | 1L << length, length + 1);
+    }
+
     private Collection<Boolean> copyAndAdd(Collection<Boolean> bits, boolean bit) {
         Collection<Boolean> collection = new ArrayDeque<>(bits);
         collection.add(bit);
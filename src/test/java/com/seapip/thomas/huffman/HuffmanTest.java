@@ -1,14 +1,43 @@
 package com.seapip.thomas.huffman;
 
+import com.seapip.thomas.huffman.huffman.ByteHistogram;
+import com.seapip.thomas.huffman.huffman.Crc32c;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class HuffmanTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void compression() throws Exception {
         String content = "Eerie eyes seen near lake.";
@@ -58,4 +87,931 @@ public class HuffmanTest {
             Huffman.compress(byteArrayInputStream, byteArrayOutputStream);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void compressionStreaming() throws Exception {
+        String content = "Eerie eyes seen near lake.";
+        Path path = folder.newFile().toPath();
+        Files.write(path, content.getBytes());
+        byte[] data;
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(path, byteArrayOutputStream);
+            data = byteArrayOutputStream.toByteArray();
+            assertEquals("Compressed data size should be 38 bytes", 38, data.length);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+        }
+    }
+
+    @Test
+    public void compressionStreamingLimit() throws Exception {
+        //Every byte value equally often takes exactly 8 bits, plus the end bit
+        long limit = (Integer.MAX_VALUE + 1L) / 8;
+        long[] written = new long[1];
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written[0] += len;
+            }
+        };
+
+        //Tree of 256 bytes and 512 structure bits, bit count and payload
+        Huffman.compress(() -> new PatternInputStream(limit - 1), counter);
+        assertEquals("Largest single stream is written", 8 + 256 + 64 + 4 + limit, written[0]);
+        try {
+            Huffman.compress(() -> new PatternInputStream(limit), counter);
+            fail("Data above the single stream limit is refused");
+        } catch (Huffman.CompressionException e) {
+            assertEquals("Data is too large to compress into a single stream", e.getMessage());
+        }
+    }
+
+    @Test
+    public void compressionMapped() throws Exception {
+        byte[] content = new byte[300000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(i % 3 == 0 ? 26 : 4));
+        Path input = folder.newFile().toPath();
+        Path compressed = folder.newFile().toPath();
+        Path decompressed = folder.newFile().toPath();
+        Files.write(input, content);
+        CompressionOptions options = new CompressionOptions().setBlockSize(65536);
+
+        Huffman.compress(input, compressed, options);
+        byte[] data = Files.readAllBytes(compressed);
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(new ByteArrayInputStream(content), byteArrayOutputStream, options);
+            assertArrayEquals("Mapped output is equal to stream output", byteArrayOutputStream.toByteArray(), data);
+        }
+
+        Huffman.decompress(compressed, decompressed, options);
+        assertArrayEquals("Decompressed data is equal to original data", content, Files.readAllBytes(decompressed));
+    }
+
+    @Test
+    public void compressionListener() throws Exception {
+        String content = "Eerie eyes seen near lake.";
+        List<CompressionStats> stats = new ArrayList<>();
+        MetricsListener metricsListener = new MetricsListener();
+        CompressionListener listener = s -> {
+            stats.add(s);
+            metricsListener.completed(s);
+        };
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.getBytes());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, listener);
+            data = byteArrayOutputStream.toByteArray();
+            assertEquals("Compressed data size should be 38 bytes", 38, data.length);
+        }
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(new ByteArrayInputStream(data), byteArrayOutputStream, new CompressionOptions().setListener(listener));
+
+            //Blocks of a few bytes are stored, so the block compression needs enough data for a code
+            Huffman.compress(new ByteArrayInputStream((content + content + content + content + content).getBytes()),
+                    byteArrayOutputStream, new CompressionOptions().setListener(listener));
+        }
+
+        assertEquals("Every operation is reported", 3, stats.size());
+        CompressionStats compression = stats.get(0);
+        assertEquals("Operation is compression", CompressionStats.Operation.COMPRESS, compression.getOperation());
+        assertEquals("Bytes in is the uncompressed size", 26, compression.getBytesIn());
+        assertEquals("Bytes out is the compressed size", 38, compression.getBytesOut());
+        assertEquals("Every distinct byte is a symbol", 12, compression.getSymbols());
+        assertEquals("Longest code is 5 bits", 5, compression.getMaxCodeLength());
+        assertTrue("Encoding takes time", compression.getTime(CompressionStats.Phase.ENCODE) > 0);
+        assertEquals("Decompression reads the compressed size", 38, stats.get(1).getBytesIn());
+        assertEquals("Decompression writes the uncompressed size", 26, stats.get(1).getBytesOut());
+        assertEquals("Block compression finds the same symbols", 12, stats.get(2).getSymbols());
+
+        assertEquals("Compressions are counted", 2, metricsListener.getCounter("compress.operations"));
+        assertEquals("Compressed bytes are counted", 156, metricsListener.getCounter("compress.bytes.in"));
+        assertEquals("Decode times are recorded", 1, metricsListener.getHistogram("decompress.time.decode").getCount());
+        assertEquals("Code lengths are recorded", 5, metricsListener.getHistogram("compress.code.length").getPercentile(50));
+
+        //Stats print the same in every locale
+        Locale locale = Locale.getDefault();
+        try {
+            for (Locale other : new Locale[]{new Locale("tr", "TR"), Locale.GERMANY}) {
+                Locale.setDefault(other);
+                String line = stats.get(2).toString();
+                assertTrue("Names are lower case ASCII", line.startsWith("compress: ") && line.contains(", write "));
+                assertTrue("Ratio has a decimal point", line.matches(".*\\(ratio \\d+\\.\\d{3}\\).*"));
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void compressionCodec() throws Exception {
+        List<byte[]> samples = new ArrayList<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            samples.add(("{\"id\":" + random.nextInt(100000) + ",\"name\":\"user" + random.nextInt(1000) + "\",\"active\":" + random.nextBoolean() + "}").getBytes());
+        }
+        HuffmanCodec codec = HuffmanCodec.train(samples);
+        byte[] message = "{\"id\":4242,\"name\":\"user7\",\"active\":true}".getBytes();
+        byte[] encoded = codec.encode(message);
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(new ByteArrayInputStream(message), byteArrayOutputStream);
+            assertTrue("Message is smaller than with an embedded tree", encoded.length < byteArrayOutputStream.size());
+            assertTrue("Message is smaller than the original", encoded.length < message.length);
+        }
+        assertEquals("Message references the dictionary", codec.getId(), HuffmanCodec.getDictionaryId(encoded));
+        assertArrayEquals("Decoded message is equal to original message", message, codec.decode(encoded));
+
+        //Bytes that aren't part of the samples can be compressed too
+        byte[] unseen = new byte[256];
+        for (int i = 0; i < unseen.length; i++) unseen[i] = (byte) i;
+        assertArrayEquals("Decoded unseen bytes are equal to original bytes", unseen, codec.decode(codec.encode(unseen)));
+        assertArrayEquals("Empty message is decoded", new byte[0], codec.decode(codec.encode(new byte[0])));
+
+        //Dictionary keeps it's id
+        Path path = folder.newFile().toPath();
+        codec.write(path);
+        HuffmanCodec read = HuffmanCodec.read(path);
+        assertEquals("Dictionary id is stable", codec.getId(), read.getId());
+        assertArrayEquals("Read dictionary decodes the message", message, read.decode(encoded));
+    }
+
+    @Test(expected = Huffman.CompressionException.class)
+    public void compressionCodecException() throws Exception {
+        HuffmanCodec codec = HuffmanCodec.train(Collections.singletonList("aaab".getBytes()));
+        HuffmanCodec other = HuffmanCodec.train(Collections.singletonList("abbb".getBytes()));
+        other.decode(codec.encode("ab".getBytes()));
+    }
+
+    @Test
+    public void decompressionCache() throws Exception {
+        DecodeTableCache cache = new DecodeTableCache();
+        CompressionOptions options = new CompressionOptions().setDecodeTableCache(cache);
+        String content = "Eerie eyes seen near lake.";
+        byte[] data;
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(new ByteArrayInputStream(content.getBytes()), byteArrayOutputStream);
+            data = byteArrayOutputStream.toByteArray();
+        }
+        for (int i = 0; i < 3; i++) {
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(new ByteArrayInputStream(data), byteArrayOutputStream, options);
+                assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+            }
+        }
+        assertEquals("Table is built once", 1, cache.getMisses());
+        assertEquals("Repeated headers are cached", 2, cache.getHits());
+
+        //Blocks with the same content share a table
+        byte[] blocks = new byte[4000];
+        for (int i = 0; i < blocks.length; i++) blocks[i] = (byte) content.charAt(i % 20);
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(new ByteArrayInputStream(blocks), byteArrayOutputStream, new CompressionOptions().setBlockSize(1000).setCanonical(true));
+            data = byteArrayOutputStream.toByteArray();
+        }
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(new ByteArrayInputStream(data), byteArrayOutputStream, options);
+            assertArrayEquals("Decompressed blocks are equal to original data", blocks, byteArrayOutputStream.toByteArray());
+        }
+        assertEquals("Block table is built once", 2, cache.getMisses());
+        assertEquals("Repeated block headers are cached", 5, cache.getHits());
+        assertEquals("Nothing is evicted", 0, cache.getEvictions());
+
+        //Small cache evicts the least recently used table
+        DecodeTableCache small = new DecodeTableCache(cache.getWeight() * 3 / 4);
+        options.setDecodeTableCache(small);
+        Huffman.decompress(new ByteArrayInputStream(data), new ByteArrayOutputStream(), options);
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.compress(new ByteArrayInputStream(content.getBytes()), byteArrayOutputStream);
+            Huffman.decompress(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()), new ByteArrayOutputStream(), options);
+        }
+        assertEquals("Table is evicted", 1, small.getEvictions());
+        assertEquals("Only the last table is cached", 1, small.getSize());
+    }
+
+    @Test
+    public void compressionAdaptive() throws Exception {
+        byte[] content = new byte[200000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i < 100000 ? 'a' + random.nextInt(4) : '0' + random.nextInt(10));
+        byte[] data;
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            try (AdaptiveHuffmanOutputStream outputStream = new AdaptiveHuffmanOutputStream(byteArrayOutputStream, 4096, 10000)) {
+                outputStream.write(content, 0, 5);
+                outputStream.flush();
+
+                //Flushed bytes can be read before the stream is finished
+                AdaptiveHuffmanInputStream inputStream = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+                byte[] flushed = new byte[5];
+                assertEquals("Flushed bytes are readable", 5, inputStream.read(flushed));
+                assertArrayEquals("Flushed bytes are equal to original data", Arrays.copyOf(content, 5), flushed);
+
+                outputStream.write(content[5]);
+                outputStream.write(content, 6, content.length - 6);
+            }
+            data = byteArrayOutputStream.toByteArray();
+            assertTrue("Adaptive code compresses the data", data.length < content.length / 2);
+        }
+
+        try (AdaptiveHuffmanInputStream inputStream = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(data));
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[3000];
+            int nRead;
+            while ((nRead = inputStream.read(buffer)) != -1) byteArrayOutputStream.write(buffer, 0, nRead);
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void compressionFilterStreams() throws Exception {
+        byte[] content = new byte[50000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(8));
+        CompressionOptions options = new CompressionOptions().setBlockSize(16384);
+        byte[] data;
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            try (HuffmanOutputStream outputStream = new HuffmanOutputStream(byteArrayOutputStream, options)) {
+                outputStream.write(content, 0, 100);
+                outputStream.flush();
+
+                //Flushed block can be read before the stream is finished
+                HuffmanInputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+                byte[] flushed = new byte[200];
+                assertEquals("Read returns the flushed block", 100, inputStream.read(flushed, 0, flushed.length));
+                assertArrayEquals("Flushed block is equal to original data", Arrays.copyOf(content, 100), Arrays.copyOf(flushed, 100));
+
+                outputStream.write(content, 100, content.length - 100);
+            }
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (HuffmanInputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(data));
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1000];
+            int nRead;
+            while ((nRead = inputStream.read(buffer, 0, buffer.length)) != -1) {
+                assertTrue("Reads return at most one block", nRead <= options.getBlockSize());
+                byteArrayOutputStream.write(buffer, 0, nRead);
+            }
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(new ByteArrayInputStream(data), byteArrayOutputStream);
+            assertArrayEquals("Stream output can be decompressed at once", content, byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void compressionBuffers() throws Exception {
+        byte[] content = new byte[50000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(8));
+        HuffmanEncoder encoder = new HuffmanEncoder(new CompressionOptions().setBlockSize(4096));
+        ByteBuffer src = ByteBuffer.allocateDirect(content.length);
+        src.put(content).flip();
+        ByteBuffer dst = ByteBuffer.allocateDirect(1000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        //Input arrives in chunks and output is drained through a small buffer
+        for (int offset = 0; !encoder.isFinished(); ) {
+            offset = Math.min(offset + 7000, content.length);
+            src.limit(offset);
+            while (encoder.encode(src, dst, offset == content.length) == CodecResult.OVERFLOW) drain(dst, compressed);
+            assertEquals("Input is consumed", 0, src.remaining());
+            drain(dst, compressed);
+        }
+        byte[] data = compressed.toByteArray();
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(new ByteArrayInputStream(data), byteArrayOutputStream);
+            assertArrayEquals("Encoder output can be decompressed at once", content, byteArrayOutputStream.toByteArray());
+        }
+
+        //Input split at every possible boundary of the container
+        HuffmanDecoder decoder = new HuffmanDecoder();
+        ByteBuffer input = ByteBuffer.wrap(data);
+        ByteBuffer output = ByteBuffer.allocate(content.length);
+        ByteBuffer small = ByteBuffer.allocate(3000);
+        for (int offset = 0; !decoder.isFinished(); ) {
+            offset = Math.min(offset + 5, data.length);
+            input.limit(offset);
+            while (decoder.decode(input, small, offset == data.length) == CodecResult.OVERFLOW) {
+                small.flip();
+                output.put(small);
+                small.clear();
+            }
+            small.flip();
+            output.put(small);
+            small.clear();
+        }
+        assertArrayEquals("Decoded data is equal to original data", content, output.array());
+    }
+
+    @Test(expected = Huffman.CompressionException.class)
+    public void compressionBuffersException() throws Exception {
+        HuffmanEncoder encoder = new HuffmanEncoder();
+        ByteBuffer data = ByteBuffer.allocate(100);
+        assertEquals(CodecResult.UNDERFLOW, encoder.encode(ByteBuffer.wrap("Eerie eyes seen near lake.".getBytes()), data, true));
+        data.flip();
+        data.limit(data.limit() - 1);
+        new HuffmanDecoder().decode(data, ByteBuffer.allocate(100), true);
+    }
+
+    /**
+     * Stream of every byte value in turn, generated without holding the data in memory
+     */
+    private static class PatternInputStream extends InputStream {
+        private final long length;
+        private long position = 0;
+
+        PatternInputStream(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            return position < length ? (int) (position++ & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == length) return -1;
+            int n = (int) Math.min(len, length - position);
+            for (int i = 0; i < n; i++) b[off + i] = (byte) position++;
+            return n;
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, ByteArrayOutputStream outputStream) {
+        buffer.flip();
+        while (buffer.hasRemaining()) outputStream.write(buffer.get());
+        buffer.clear();
+    }
+
+    @Test
+    public void decompressionRange() throws Exception {
+        byte[] content = new byte[100000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(8));
+        Path input = folder.newFile("range").toPath();
+        Path output = folder.newFile("range.huf").toPath();
+        Files.write(input, content);
+        Huffman.compress(input, output, new CompressionOptions().setBlockSize(4096).setCanonical(true));
+
+        assertArrayEquals("Range spanning blocks is equal to original data",
+                Arrays.copyOfRange(content, 5000, 15000), Huffman.decompressRange(output, 5000, 10000));
+        assertArrayEquals("Range at the start is equal to original data",
+                Arrays.copyOfRange(content, 0, 10), Huffman.decompressRange(output, 0, 10));
+        assertArrayEquals("Range is cut off at the end of the data",
+                Arrays.copyOfRange(content, 99990, 100000), Huffman.decompressRange(output, 99990, 100));
+        assertEquals("Range after the end of the data is empty", 0, Huffman.decompressRange(output, 100000, 100).length);
+
+        //Flushed blocks are shorter than the block size
+        Path flushed = folder.newFile("flushed.huf").toPath();
+        try (HuffmanOutputStream outputStream = new HuffmanOutputStream(Files.newOutputStream(flushed), new CompressionOptions().setBlockSize(4096))) {
+            for (int offset = 0; offset < content.length; offset += 3000) {
+                outputStream.write(content, offset, Math.min(3000, content.length - offset));
+                outputStream.flush();
+            }
+        }
+        assertArrayEquals("Range across flushed blocks is equal to original data",
+                Arrays.copyOfRange(content, 5000, 15000), Huffman.decompressRange(flushed, 5000, 10000));
+
+        //An index entry pointing at the offset of the block before it
+        byte[] data = Files.readAllBytes(output);
+        ByteBuffer index = ByteBuffer.wrap(data);
+        long indexPosition = index.getLong(data.length - 12);
+        index.putLong((int) indexPosition + 4 + 5 * 16, 4 * 4096);
+        Path corrupt = folder.newFile("corrupt.huf").toPath();
+        Files.write(corrupt, data);
+        try {
+            Huffman.decompressRange(corrupt, 4 * 4096 + 600, 100);
+            fail("Damaged index is found");
+        } catch (Huffman.CompressionException e) {
+            assertEquals("Corrupt index", e.getMessage());
+        }
+    }
+
+    @Test(expected = Huffman.CompressionException.class)
+    public void decompressionRangeException() throws Exception {
+        Path output = folder.newFile("range.huf").toPath();
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream("Eerie eyes seen near lake.".getBytes());
+             OutputStream outputStream = Files.newOutputStream(output)) {
+
+            Huffman.compress(byteArrayInputStream, outputStream);
+        }
+        Huffman.decompressRange(output, 0, 10);
+    }
+
+    @Test
+    public void compressionBlocks() throws Exception {
+        byte[] content = new byte[100000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i < 50000 ? 'a' + random.nextInt(4) : random.nextInt(256));
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setBlockSize(30000));
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test(expected = Huffman.CompressionException.class)
+    public void decompressBlocksException() throws Exception {
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream("Eerie eyes seen near lake.".getBytes());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions());
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data, 0, data.length - 1);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+        }
+    }
+
+    @Test
+    public void compressionParallel() throws Exception {
+        byte[] content = new byte[200000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (random.nextGaussian() * (1 + i / 20000));
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setBlockSize(10000));
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setBlockSize(10000).setThreads(4));
+            assertArrayEquals("Parallel compressed data is equal to sequential compressed data", data, byteArrayOutputStream.toByteArray());
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setThreads(4));
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+
+        //A shared executor that only runs the first block, the output fails once that block is written
+        List<Runnable> queued = new ArrayList<>();
+        Executor executor = task -> {
+            if (queued.isEmpty()) task.run();
+            queued.add(task);
+        };
+        OutputStream failing = new OutputStream() {
+            private int written = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 100) throw new IOException("Disk full");
+            }
+        };
+        try {
+            Huffman.compress(new ByteArrayInputStream(content), failing,
+                    new CompressionOptions().setBlockSize(10000).setThreads(2).setExecutor(executor));
+            fail("Failed writes fail the compression");
+        } catch (Huffman.CompressionException e) {
+            assertEquals("Disk full", e.getMessage());
+        }
+        assertEquals("A window of blocks is in flight", 4, queued.size());
+        for (Runnable task : queued.subList(1, queued.size())) {
+            assertTrue("Blocks in flight are cancelled when the compression fails", ((Future<?>) task).isCancelled());
+        }
+    }
+
+    @Test
+    public void compressionDeepTree() throws Exception {
+        //Fibonacci frequencies create a tree with codes longer than the decode table root
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int a = 1;
+        int b = 1;
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < a; j++) content.write('a' + i);
+            int c = a + b;
+            a = b;
+            b = c;
+        }
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.toByteArray());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream);
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertArrayEquals("Decompressed data is equal to original data", content.toByteArray(), byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void compressionCanonical() throws Exception {
+        String json = "{\"id\":42,\"name\":\"Eerie eyes seen near lake.\",\"tags\":[\"a\",\"b\"]}";
+        byte[] content = (json + json + json + json).getBytes();
+        byte[] tree;
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions());
+            tree = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setCanonical(true));
+            data = byteArrayOutputStream.toByteArray();
+            assertTrue("Canonical code lengths are smaller than a Huffman tree", data.length < tree.length);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void compressionInterleaved() throws Exception {
+        byte[] content = new byte[100003];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (random.nextGaussian() * 20);
+
+        //Blocks smaller than the amount of streams leave streams empty
+        for (CompressionOptions options : Arrays.asList(
+                new CompressionOptions().setInterleaved(true),
+                new CompressionOptions().setInterleaved(true).setCanonical(true).setBlockSize(10001),
+                new CompressionOptions().setInterleaved(true).setBlockSize(3))) {
+            byte[] data;
+
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.compress(byteArrayInputStream, byteArrayOutputStream, options);
+                data = byteArrayOutputStream.toByteArray();
+            }
+
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+                assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void compressionContext() throws Exception {
+        //Every letter is mostly followed by the same few letters
+        byte[] content = new byte[100000];
+        Random random = new Random(0);
+        for (int i = 1; i < content.length; i++) content[i] = (byte) ('a' + (content[i - 1] * 7 + random.nextInt(3)) % 26);
+        byte[] single;
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setCanonical(true));
+            single = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setCanonical(true).setContextModeling(true));
+            data = byteArrayOutputStream.toByteArray();
+            assertTrue("Context codes are smaller than a single code", data.length < single.length * 2 / 3);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void compressionStored() throws Exception {
+        //Random bytes followed by a run of a single byte
+        byte[] content = new byte[200000];
+        new Random(0).nextBytes(content);
+        Arrays.fill(content, 100000, content.length, (byte) 'a');
+        Path input = folder.newFile().toPath();
+        Path compressed = folder.newFile().toPath();
+        Files.write(input, content);
+        CompressionOptions options = new CompressionOptions().setBlockSize(50000);
+
+        Huffman.compress(input, compressed, options);
+        long size = Files.size(compressed);
+        assertTrue("Random blocks are stored and runs take a single byte", size > 100000 && size < 100200);
+        try (InputStream inputStream = Files.newInputStream(compressed);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(inputStream, byteArrayOutputStream, options);
+            assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+        }
+        assertArrayEquals("Ranges across stored and run blocks are decompressed", Arrays.copyOfRange(content, 90000, 110000),
+                Huffman.decompressRange(compressed, 90000, 20000));
+
+        //Small blocks of distinct bytes have a low entropy but no code makes them smaller
+        byte[] distinct = new byte[100];
+        for (int i = 0; i < distinct.length; i++) distinct[i] = (byte) i;
+        for (int i = 0; i < 16; i++) {
+            CompressionOptions blockOptions = new CompressionOptions().setBlockSize(distinct.length).setCanonical((i & 1) != 0)
+                    .setInterleaved((i & 2) != 0).setContextModeling((i & 4) != 0).setChecksum((i & 8) != 0);
+            int overhead = 11 + 13 + 1 + 4 + 16 + 12 + ((i & 8) != 0 ? 8 : 0);
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.compress(new ByteArrayInputStream(distinct), byteArrayOutputStream, blockOptions);
+                assertTrue("Blocks never exceed their length", byteArrayOutputStream.size() <= distinct.length + overhead);
+                ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+                Huffman.decompress(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()), decompressed, blockOptions);
+                assertArrayEquals("Decompressed data is equal to original data", distinct, decompressed.toByteArray());
+            }
+        }
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            try (HuffmanOutputStream outputStream = new HuffmanOutputStream(byteArrayOutputStream, options)) {
+                outputStream.write(distinct);
+                outputStream.flush();
+            }
+            assertTrue("Flushed blocks never exceed their length", byteArrayOutputStream.size() <= distinct.length + 57);
+        }
+    }
+
+    @Test
+    public void compressionChecksum() throws Exception {
+        byte[] check = "123456789".getBytes();
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(check, 0, check.length);
+        assertEquals("Table checksum is the CRC-32C check value", 0xE3069283L, crc32c.getValue());
+        assertEquals("Runtime checksum is the CRC-32C check value", 0xE3069283, Crc32c.checksum(check, 0, check.length));
+        ByteBuffer direct = ByteBuffer.allocateDirect(check.length);
+        direct.put(check).flip();
+        assertEquals("Buffer checksum is the CRC-32C check value", 0xE3069283, Crc32c.checksum(direct));
+
+        byte[] content = new byte[20000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(i % 3 == 0 ? 26 : 4));
+        Arrays.fill(content, 16384, content.length, (byte) 'z');
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setBlockSize(4096).setChecksum(true));
+            data = byteArrayOutputStream.toByteArray();
+        }
+        assertEquals("Verifying returns the decompressed length", content.length, Huffman.verify(new ByteArrayInputStream(data), new CompressionOptions()));
+
+        //Every flipped bit after the header is found, unless it's a padding bit that doesn't change the data
+        int found = 0;
+        for (int i = 11; i < data.length; i++) {
+            data[i] ^= 1 << (i % 8);
+            boolean verified;
+            try {
+                Huffman.verify(new ByteArrayInputStream(data), new CompressionOptions());
+                verified = true;
+            } catch (Huffman.CompressionException e) {
+                verified = false;
+                found++;
+            }
+            HuffmanDecoder huffmanDecoder = new HuffmanDecoder();
+            ByteBuffer output = ByteBuffer.allocate(content.length);
+            try {
+                huffmanDecoder.decode(ByteBuffer.wrap(data), output, true);
+                assertTrue("Flipped bit at byte " + i + " is found by verifying and decoding", verified);
+                assertArrayEquals("Flipped bits that aren't found don't change the data", content, output.array());
+            } catch (Huffman.CompressionException e) {
+                assertTrue("Flipped bit at byte " + i + " is found by verifying and decoding", !verified);
+            }
+            data[i] ^= 1 << (i % 8);
+        }
+        assertTrue("Nearly all flipped bits are found", found > (data.length - 11) * 0.95);
+    }
+
+    @Test
+    public void histogram() {
+        byte[] content = new byte[5 << 20];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (random.nextGaussian() * 30);
+        long[] expected = new long[256];
+        for (int i = 1; i < content.length; i++) expected[content[i] & 0xFF]++;
+
+        assertArrayEquals("Counted frequencies are equal to expected frequencies", expected, ByteHistogram.count(Arrays.copyOfRange(content, 1, content.length)));
+        assertArrayEquals("Parallel frequencies are equal to expected frequencies", expected, ByteHistogram.countParallel(content, 1, content.length - 1));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content).position(1);
+        long[] frequencies = new long[256];
+        ByteHistogram.count(buffer, frequencies);
+        assertArrayEquals("Buffer frequencies are equal to expected frequencies", expected, frequencies);
+
+        long[] uniform = new long[256];
+        Arrays.fill(uniform, 10);
+        assertEquals("Uniform bytes have 8 bits of entropy", 8, ByteHistogram.entropy(uniform), 1e-9);
+    }
+
+    @Test
+    public void compressionBatch() throws Exception {
+        Path input = folder.newFolder("input").toPath();
+        Files.createDirectories(input.resolve("nested"));
+        Random random = new Random(0);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            byte[] content = new byte[random.nextInt(100000)];
+            for (int j = 0; j < content.length; j++) content[j] = (byte) (random.nextGaussian() * 20);
+            files.add(Files.write(input.resolve(i % 2 == 0 ? "file" + i : "nested/file" + i), content));
+        }
+        Path compressed = folder.newFolder("compressed").toPath();
+        Path decompressed = folder.newFolder("decompressed").toPath();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        try (PrintStream printStream = new PrintStream(out); PrintStream errorStream = new PrintStream(err)) {
+            assertEquals("Batch compression succeeds", 0, Main.run(new String[]{"batch", "compress", "-t", "2",
+                    "-o", compressed.toString(), input.toString()}, printStream, errorStream));
+            assertEquals("Batch decompression succeeds", 0, Main.run(new String[]{"batch", "decompress", "-t", "2",
+                    "-o", decompressed.toString(), compressed + "/**.compressed"}, printStream, errorStream));
+            assertEquals("Missing files fail the batch", 1, Main.run(new String[]{"batch", "compress",
+                    input.resolve("missing").toString()}, printStream, errorStream));
+            assertEquals("Incorrect arguments are rejected", 2, Main.run(new String[]{"batch", "compress", "-t"}, printStream, errorStream));
+        }
+        for (Path file : files) {
+            Path restored = Paths.get(decompressed.resolve(input.relativize(file)) + ".decompressed");
+            assertArrayEquals("Decompressed data is equal to original data", Files.readAllBytes(file), Files.readAllBytes(restored));
+        }
+        assertTrue("Failed files are reported", err.toString().contains("missing"));
+
+        //Compressing a glob again skips the files it compressed before
+        try (PrintStream printStream = new PrintStream(out); PrintStream errorStream = new PrintStream(err)) {
+            for (int i = 0; i < 2; i++) {
+                assertEquals("Glob compression succeeds", 0, Main.run(new String[]{"batch", "compress",
+                        input + "/file*"}, printStream, errorStream));
+            }
+        }
+        assertTrue("Glob compression creates output", Files.exists(input.resolve("file0" + BatchCompressor.SUFFIX)));
+        assertTrue("Compressed files aren't compressed again",
+                !Files.exists(input.resolve("file0" + BatchCompressor.SUFFIX + BatchCompressor.SUFFIX)));
+    }
+
+    @Test
+    public void compressionLengthLimited() throws Exception {
+        //Fibonacci frequencies create codes up to 29 bits without a limit
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int a = 1;
+        int b = 1;
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < Math.min(a, 100000); j++) content.write(i);
+            int c = a + b;
+            a = b;
+            b = c;
+        }
+        for (int i = 30; i < 256; i++) content.write(i);
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.toByteArray());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new CompressionOptions().setCanonical(true).setMaxCodeLength(9));
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertArrayEquals("Decompressed data is equal to original data", content.toByteArray(), byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void compressionPooled() throws Exception {
+        PooledBufferAllocator pooled = new PooledBufferAllocator();
+        ThreadLocalBufferAllocator threadLocal = new ThreadLocalBufferAllocator();
+        Random random = new Random(0);
+        for (BufferAllocator allocator : new BufferAllocator[]{pooled, threadLocal}) {
+            CompressionOptions options = new CompressionOptions().setBlockSize(10000).setThreads(2)
+                    .setChecksum(true).setBufferAllocator(allocator);
+
+            //Reused arrays hold data of earlier blocks, so every round trip compresses different content
+            for (int i = 0; i < 4; i++) {
+                byte[] content = new byte[35000 + i * 1000];
+                for (int j = 0; j < content.length; j++) content[j] = (byte) ('a' + random.nextInt(4 + i * 80));
+                byte[] data;
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.compress(new ByteArrayInputStream(content), byteArrayOutputStream, options);
+                    data = byteArrayOutputStream.toByteArray();
+                }
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(new ByteArrayInputStream(data), byteArrayOutputStream, options);
+                    assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+                }
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    try (HuffmanOutputStream huffmanOutputStream = new HuffmanOutputStream(byteArrayOutputStream, options)) {
+                        huffmanOutputStream.write(content);
+                    }
+                    assertArrayEquals("Streams write the same data", data, byteArrayOutputStream.toByteArray());
+                }
+                try (HuffmanInputStream huffmanInputStream = new HuffmanInputStream(new ByteArrayInputStream(data), options);
+                     ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    byte[] buffer = new byte[4096];
+                    int nRead;
+                    while ((nRead = huffmanInputStream.read(buffer)) != -1) byteArrayOutputStream.write(buffer, 0, nRead);
+                    assertArrayEquals("Streams read the original data", content, byteArrayOutputStream.toByteArray());
+                }
+            }
+        }
+        assertTrue("Released arrays are reused", pooled.getHits() > pooled.getMisses());
+        assertTrue("Released arrays are kept", pooled.getPooledBytes() > 0);
+        assertTrue("Arrays released by other threads are reused", threadLocal.getHits() > threadLocal.getMisses());
+
+        //Arrays released by another thread go to the shared pool once it's own pool is full
+        ThreadLocalBufferAllocator crossThread = new ThreadLocalBufferAllocator(1 << 16, 1 << 20);
+        ExecutorService releaser = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 100; i++) {
+                byte[] buffer = crossThread.allocate(16384);
+                releaser.submit(() -> crossThread.release(buffer)).get();
+            }
+        } finally {
+            releaser.shutdown();
+        }
+        assertEquals("Only allocations before the releasing thread's pool is full miss", 5, crossThread.getMisses());
+        assertTrue("The shared pool is bounded", crossThread.getSharedPooledBytes() <= 1 << 20);
+    }
+
+    @Test
+    public void compressionEstimate() throws Exception {
+        CompressionEstimate legacy = Huffman.estimate("Eerie eyes seen near lake.".getBytes());
+        assertEquals("Legacy size is exact", 38, legacy.getCompressedSize());
+        assertTrue("Codes are at least as long as the entropy", legacy.getMaxCodeLength() >= Math.ceil(legacy.getEntropy()));
+
+        //Random bytes, text and a run, so blocks of every type are modeled
+        byte[] content = new byte[300000];
+        Random random = new Random(0);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(26));
+        for (int i = 0; i < 60000; i++) content[i] = (byte) random.nextInt(256);
+        Arrays.fill(content, 250000, content.length, (byte) 'z');
+        Path input = folder.newFile().toPath();
+        Files.write(input, content);
+        for (int i = 0; i < 8; i++) {
+            CompressionOptions options = new CompressionOptions().setBlockSize(40000).setCanonical((i & 1) != 0)
+                    .setInterleaved((i & 2) != 0).setContextModeling((i & 4) != 0).setChecksum(i % 3 == 0);
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.compress(new ByteArrayInputStream(content), byteArrayOutputStream, options);
+                CompressionEstimate estimate = Huffman.estimate(ByteBuffer.wrap(content), options);
+                assertEquals("Block format size is exact", byteArrayOutputStream.size(), estimate.getCompressedSize());
+                assertEquals("File size is exact", byteArrayOutputStream.size(), Huffman.estimate(input, options, 0).getCompressedSize());
+                assertEquals("Every block is modeled", 8, estimate.getBlocks());
+                assertTrue("Exact estimates aren't sampled", !estimate.isSampled());
+            }
+        }
+
+        CompressionEstimate sampled = Huffman.estimate(input, new CompressionOptions().setBlockSize(10000), 6);
+        CompressionEstimate exact = Huffman.estimate(input, new CompressionOptions().setBlockSize(10000), 0);
+        assertTrue("Sampled estimates are sampled", sampled.isSampled() && sampled.getSampledLength() == 60000);
+        assertEquals("Sampled estimates count every block", exact.getBlocks(), sampled.getBlocks());
+        assertEquals("Sampled estimates are close", exact.getCompressedSize(), sampled.getCompressedSize(), exact.getCompressedSize() * 0.1);
+        assertEquals("Empty data has only a header and index", 28, Huffman.estimate(ByteBuffer.allocate(0), new CompressionOptions()).getCompressedSize());
+    }
+}
@@ -0,0 +1,82 @@
+package com.seapip.thomas.huffman.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BitBufferTest {
+
+    @Test
+    public void appendAndRead() throws Exception {
+        Random random = new Random(0);
+        long[] values = new long[10000];
+        int[] counts = new int[values.length];
+        BitBuffer bitBuffer = new BitBuffer(1);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        BitWriter bitWriter = new BitWriter(byteArrayOutputStream);
+        long size = 0;
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = random.nextInt(65);
+            values[i] = counts[i] == 64 ? random.nextLong() : random.nextLong() & ((1L << counts[i]) - 1);
+            bitBuffer.appendBits(values[i], counts[i]);
+            bitWriter.write(values[i], counts[i]);
+            size += counts[i];
+        }
+        bitWriter.flush();
+        assertEquals("Size is the amount of appended bits", size, bitBuffer.size());
+        assertArrayEquals("Exported bits are equal to written bits", byteArrayOutputStream.toByteArray(), bitBuffer.toByteArray());
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals("Peeked bits are equal to appended bits", values[i], bitBuffer.peekBits(counts[i]));
+            assertEquals("Read bits are equal to appended bits", values[i], bitBuffer.readBits(counts[i]));
+        }
+        assertEquals("All bits have been read", 0, bitBuffer.size());
+    }
+
+    @Test
+    public void appendWhileReading() {
+        //Chunks that have been read are released while the buffer keeps growing
+        BitBuffer bitBuffer = new BitBuffer(64);
+        long next = 0;
+        for (long i = 0; i < 200000; i++) {
+            bitBuffer.appendBits(i, 18);
+            if (i % 3 == 0) assertEquals("Bits are read in order", next++, bitBuffer.readBits(18));
+        }
+        while (!bitBuffer.isEmpty()) assertEquals("Bits are read in order", next++, bitBuffer.readBits(18));
+        assertEquals("Every value has been read", 200000, next);
+    }
+
+    @Test
+    public void export() {
+        BitBuffer bitBuffer = new BitBuffer();
+        bitBuffer.appendBits(0b101, 3);
+        bitBuffer.appendBytes(new byte[]{(byte) 0xFF, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08}, 0, 9);
+        bitBuffer.skipBits(1);
+
+        //Bits after a read position that isn't byte aligned are shifted down
+        byte[] expected = {(byte) 0xFE, 0x07, 0x08, 0x0C, 0x10, 0x14, 0x18, 0x1C, 0x20, 0x00};
+        byte[] data = new byte[12];
+        assertEquals("Amount of exported bytes", 10, bitBuffer.toByteArray(data, 2));
+        assertArrayEquals("Bits are exported at the offset", expected, Arrays.copyOfRange(data, 2, 12));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put((byte) 1);
+        assertEquals("Amount of exported bytes", 10, bitBuffer.toByteBuffer(buffer));
+        assertEquals("Position is moved past the exported bytes", 11, buffer.position());
+        assertEquals("Size isn't changed by exporting", 74, bitBuffer.size());
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void readException() {
+        BitBuffer bitBuffer = new BitBuffer();
+        bitBuffer.appendBits(1, 10);
+        bitBuffer.readBits(11);
+    }
+}